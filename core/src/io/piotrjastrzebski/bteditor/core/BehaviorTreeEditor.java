@@ -2,7 +2,6 @@ package io.piotrjastrzebski.bteditor.core;
 
 import com.badlogic.gdx.ai.btree.BehaviorTree;
 import com.badlogic.gdx.ai.btree.Task;
-import com.badlogic.gdx.ai.btree.utils.BehaviorTreeLibrary;
 import com.badlogic.gdx.ai.btree.utils.BehaviorTreeLibraryManager;
 import com.badlogic.gdx.ai.btree.utils.BehaviorTreeParser;
 import com.badlogic.gdx.scenes.scene2d.Actor;
@@ -15,9 +14,15 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
+import io.piotrjastrzebski.bteditor.core.model.Breakpoint;
+import io.piotrjastrzebski.bteditor.core.model.ModelTask;
 import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+import io.piotrjastrzebski.bteditor.core.model.StepScheduler;
 import io.piotrjastrzebski.bteditor.core.model.TaskLibrary;
+import io.piotrjastrzebski.bteditor.core.model.TaskProfiler;
+import io.piotrjastrzebski.bteditor.core.model.Workspace;
 import io.piotrjastrzebski.bteditor.core.view.ViewGraph;
 import io.piotrjastrzebski.bteditor.core.view.ViewTaskAttributeEdit;
 import io.piotrjastrzebski.bteditor.core.view.ViewTask;
@@ -62,6 +67,17 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 	private Window graphWindow;
 	private ViewGraph<E> graph;
 
+	private Workspace<E> workspace;
+	private ObjectMap<String, Tab<E>> nameToTab = new ObjectMap<>();
+	private Tab<E> activeTab;
+	private Table tabBar;
+	private ButtonGroup<TextButton> tabGroup;
+	private Cell<Actor> viewCell;
+	private Cell<Actor> graphCell;
+	private Drawable white;
+	private float scale;
+	private boolean lazy;
+
 	// TODO save part of the tree as new one
 	private IPersist<E> persist;
 
@@ -71,11 +87,27 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 	private TextButton loadBtn;
 	private TextButton pauseBtn;
 	private TextButton stepBtn;
+	private TextButton profileBtn;
+	private TextButton workerBtn;
+	private TextButton breakBtn;
+	private TextButton heatBtn;
 	private TextButton showGraph;
+	private TextButton undoBtn;
+	private TextButton redoBtn;
+	private Label stepsLabel;
+	private Slider timeline;
+	// set while we move the timeline, so only user changes scrub
+	private boolean updatingTimeline;
+	private IntIntMap replayStatuses = new IntIntMap();
+	private StatusTraceReader trace;
+	private float shownStepsPerSecond = -1;
 	private RelativeFileHandleResolver resolver;
+	private CachedBehaviorTreeLibrary library;
 	private ViewTask<E> selected = null;
 	private EditorBehaviourTreeReader treeReader;
 
+	public final static String DEFAULT_TAB = "main";
+
 	public BehaviorTreeEditor (Skin skin, Drawable white) {
 		this(skin, white, 1);
 	}
@@ -83,23 +115,28 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 	public BehaviorTreeEditor (Skin skin, Drawable white, float scale) {
 		super();
 		this.skin = skin;
+		this.white = white;
+		this.scale = scale;
 		// we need to set custom resolver so we can load includes that are not from cwd
 		resolver = new RelativeFileHandleResolver();
-		BehaviorTreeLibraryManager.getInstance().setLibrary(new BehaviorTreeLibrary(resolver));
+		// includes referencing same subtree are parsed once
+		library = new CachedBehaviorTreeLibrary(resolver);
+		BehaviorTreeLibraryManager.getInstance().setLibrary(library);
 
 		treeReader = new EditorBehaviourTreeReader<>();
 
-		model = new ModelTree<>();
+		// all trees share task library and metadata
+		workspace = new Workspace<>();
 		trash = new Label("Trash -> [_]", skin);
 		add(createTopMenu()).colspan(3);
 		row();
 		add(trash).colspan(3);
 		row();
+		tabBar = new Table();
+		tabGroup = new ButtonGroup<>();
+		add(tabBar).colspan(3).left();
+		row();
 		edit = new ViewTaskAttributeEdit(skin);
-		view = new ViewTree<>(skin, white, scale);
-		view.addListener(this);
-		view.addTrash(trash);
-		view.setShortStatuses(true);
 
 		tasks = new Tree(skin);
 		tasks.setYSpacing(0);
@@ -109,13 +146,20 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 		paneCont.add(pane).expand().fill();
 		add(paneCont).expand().fill().top();
 
-		add(view).expand().fill();
+		viewCell = add((Actor)null).expand().fill();
 		add(edit).expand().fillX().top();
 
 		graphWindow = new Window("Graph view", skin);
 		graphWindow.setResizable(true);
-		graph = new ViewGraph<>((TextureRegionDrawable)white, skin);
-		graphWindow.add(graph).expand().fill();
+		graphCell = graphWindow.add((Actor)null).expand().fill();
+		heatBtn = new TextButton("Heat", skin, "toggle");
+		heatBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				graph.setHeatMode(heatBtn.isChecked() ? ViewGraph.HeatMode.VISITS : ViewGraph.HeatMode.OFF);
+			}
+		});
+		graphWindow.getTitleTable().add(heatBtn).padRight(5);
+		switchTo(createTab(DEFAULT_TAB).name);
 		graphWindow.pack();
 		final TextButton graphClose = new TextButton("X", skin);
 		graphWindow.getTitleTable().add(graphClose).padRight(-getPadRight() + 0.7f);
@@ -137,7 +181,8 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 					logger.error("BTE", "You need to set IPersist before you can save a tree");
 					return;
 				}
-				persist.onSave(BehaviorTreeWriter.serialize(model.getRootNode()));
+				persist.onSave(model.serialize());
+				model.markSaved();
 			}
 		});
 		topMenu.add(saveBtn);
@@ -148,7 +193,8 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 					logger.error("BTE", "You need to set IPersist before you can save as a tree");
 					return;
 				}
-				persist.onSaveAs(BehaviorTreeWriter.serialize(model.getRootNode()));
+				persist.onSaveAs(model.serialize());
+				model.markSaved();
 			}
 		});
 		topMenu.add(saveAsBtn);
@@ -179,11 +225,10 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 		pauseBtn.addListener(new ClickListener(){
 			@Override public void clicked (InputEvent event, float x, float y) {
 				if (pauseBtn.isDisabled()) return;
-				if (pauseBtn.isChecked()) {
-					pauseBtn.setText("Resume");
-				} else {
-					pauseBtn.setText("Pause");
-				}
+				activeTab.entry.setPaused(pauseBtn.isChecked());
+				updatePauseText();
+				if (!pauseBtn.isChecked())
+					showLive();
 			}
 		});
 		topMenu.add(pauseBtn);
@@ -197,6 +242,30 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 			}
 		});
 		topMenu.add(stepBtn);
+		profileBtn = new TextButton("Profile", skin, "toggle");
+		profileBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				setProfiling(profileBtn.isChecked());
+			}
+		});
+		topMenu.add(profileBtn);
+		workerBtn = new TextButton("Worker", skin, "toggle");
+		workerBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				// slow tasks dont freeze the editor when stepped on a worker thread
+				activeTab.entry.setBackground(workerBtn.isChecked());
+			}
+		});
+		topMenu.add(workerBtn);
+		breakBtn = new TextButton("Break", skin, "toggle");
+		breakBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				// pause whenever selected task updates its status
+				if (!toggleBreakpoint(selected != null ? selected.getModelTask() : null))
+					breakBtn.setChecked(false);
+			}
+		});
+		topMenu.add(breakBtn);
 		showGraph = new TextButton("Graph", skin);
 		showGraph.addListener(new ClickListener(){
 			@Override public void clicked (InputEvent event, float x, float y) {
@@ -218,17 +287,130 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 			}
 		});
 		topMenu.add(showGraph);
+		undoBtn = new TextButton("Undo", skin);
+		undoBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				if (model.undo()) refreshSelected();
+			}
+		});
+		topMenu.add(undoBtn);
+		redoBtn = new TextButton("Redo", skin);
+		redoBtn.addListener(new ClickListener(){
+			@Override public void clicked (InputEvent event, float x, float y) {
+				if (model.redo()) refreshSelected();
+			}
+		});
+		topMenu.add(redoBtn);
+		stepsLabel = new Label("", skin);
+		topMenu.add(stepsLabel);
+		timeline = new Slider(0, 1, 1, false, skin);
+		timeline.addListener(new ChangeListener() {
+			@Override public void changed (ChangeEvent event, Actor actor) {
+				if (updatingTimeline) return;
+				scrubTo((int)timeline.getValue());
+			}
+		});
+		topMenu.add(timeline).width(200 * scale);
 		return topMenu;
 	}
 
+	/**
+	 * Profile the active tree and show stats on tasks, when stopped hottest tasks are logged
+	 */
+	public void setProfiling (boolean profiling) {
+		TaskProfiler profiler = model.getProfiler();
+		if (profiling && profiler == null) {
+			profiler = new TaskProfiler();
+			model.setProfiler(profiler);
+			view.setProfiler(profiler);
+		} else if (!profiling && profiler != null) {
+			logger.log("BTE", profiler.report(model, HOTTEST_COUNT));
+			model.setProfiler(null);
+			view.setProfiler(null);
+		}
+		profileBtn.setChecked(profiling);
+	}
+
+	private final static int HOTTEST_COUNT = 10;
+
+	private void scrubTo (int tick) {
+		if (trace == null && tick >= model.getTick()) {
+			showLive();
+			return;
+		}
+		// the past is easier to look at if it doesnt move
+		if (!pauseBtn.isChecked() && !pauseBtn.isDisabled()) {
+			pauseBtn.setChecked(true);
+			activeTab.entry.setPaused(true);
+			updatePauseText();
+		}
+		if (trace != null) {
+			trace.statusesAt(tick, model, replayStatuses);
+		} else {
+			model.getTimeline().statusesAt(tick, replayStatuses);
+		}
+		view.showStatuses(tick, replayStatuses);
+		graph.showStatuses(replayStatuses);
+	}
+
+	private void showLive () {
+		trace = null;
+		view.showLive();
+		graph.showLive();
+	}
+
+	private void updateTimeline () {
+		updatingTimeline = true;
+		if (trace != null) {
+			timeline.setRange(trace.getFirstTick(), Math.max(trace.getLastTick(), trace.getFirstTick() + 1));
+		} else {
+			int newest = model.getTick();
+			int oldest = Math.min(model.getTimeline().getOldestTick(), newest);
+			timeline.setRange(oldest, Math.max(newest, oldest + 1));
+			if (view.getReplayTick() < 0)
+				timeline.setValue(newest);
+		}
+		updatingTimeline = false;
+	}
+
+	/**
+	 * Replay a recorded trace in the active tab, the timeline scrubs through the trace instead of recent ticks
+	 * <p>
+	 * Tree is paused, resuming it goes back to live statuses.
+	 *
+	 * @param trace trace of a tree with same structure as the active one, null to go back to live statuses
+	 */
+	public void showTrace (StatusTraceReader trace) {
+		if (trace == null) {
+			showLive();
+			return;
+		}
+		this.trace = trace;
+		updateTimeline();
+		updatingTimeline = true;
+		timeline.setValue(trace.getFirstTick());
+		updatingTimeline = false;
+		scrubTo(trace.getFirstTick());
+	}
+
+	private void updatePauseText () {
+		if (pauseBtn.isChecked()) {
+			pauseBtn.setText("Resume");
+		} else {
+			pauseBtn.setText("Pause");
+		}
+	}
+
 	public void setLogger (Logger logger) {
 		if (logger == null) {
 			this.logger = NULL_LOGGER;
 		} else {
 			this.logger = logger;
 		}
-		model.setLogger(logger);
-		view.setLogger(logger);
+		workspace.setLogger(logger);
+		for (Tab<E> tab : nameToTab.values()) {
+			tab.view.setLogger(logger);
+		}
 	}
 
 	public void setPersist(IPersist<E> persist) {
@@ -241,11 +423,15 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 	 * @param tree to initialize with
 	 */
 	public void initialize (BehaviorTree<E> tree, String root) {
+		activeTab.root = root;
 		resolver.setRoot(root);
+		// tasks pick up comments from parsed file when they are wrapped
+		model.setCommentSource(treeReader);
 		model.init(tree);
 		view.init(model);
 		graph.init(model);
-		treeReader.addComments(model.getRootNode());
+		// comments are part of the loaded tree
+		model.markSaved();
 	}
 
 	@Override public void selected (ViewTask<E> task) {
@@ -255,11 +441,181 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 			edit.stopEdit();
 		}
 		selected = task;
+		breakBtn.setChecked(hasBreakpoint(task.getModelTask()));
+	}
+
+	private void refreshSelected () {
+		if (selected == null) return;
+		ModelTask<E> task = selected.getModelTask();
+		// selected task may no longer be in the tree
+		if (task != null && (task.getParent() != null || task == model.getRootNode()) && selected.isEditable()) {
+			edit.startEdit(task);
+		} else {
+			deselected();
+		}
 	}
 
 	@Override public void deselected () {
 		edit.stopEdit();
 		selected = null;
+		breakBtn.setChecked(false);
+	}
+
+	/**
+	 * @return true if task has a breakpoint now
+	 */
+	private boolean toggleBreakpoint (ModelTask<E> task) {
+		// not in the model, ie a guard
+		if (task == null || model.getTask(task.getId()) != task)
+			return false;
+		Array<Breakpoint<E>> breakpoints = model.getBreakpoints();
+		for (int i = breakpoints.size - 1; i >= 0; i--) {
+			Breakpoint<E> breakpoint = breakpoints.get(i);
+			if (breakpoint.getTask() == task) {
+				model.removeBreakpoint(breakpoint);
+				return false;
+			}
+		}
+		model.addBreakpoint(task, null);
+		return true;
+	}
+
+	private boolean hasBreakpoint (ModelTask<E> task) {
+		Array<Breakpoint<E>> breakpoints = model.getBreakpoints();
+		for (int i = 0; i < breakpoints.size; i++) {
+			if (breakpoints.get(i).getTask() == task)
+				return true;
+		}
+		return false;
+	}
+
+	private int shownHitTick = -1;
+	private void checkBreakpoint () {
+		Breakpoint<E> hit = model.getHitBreakpoint();
+		if (hit == null || shownHitTick == model.getHitTick())
+			return;
+		shownHitTick = model.getHitTick();
+		logger.log("BTE", "Breakpoint hit at tick " + shownHitTick + ": " + hit);
+	}
+
+	/**
+	 * Open the tree in a new tab and switch to it, existing tab with same name is reinitialized
+	 *
+	 * @param name unique name of the tab
+	 * @param tree to initialize with
+	 */
+	public void open (String name, BehaviorTree<E> tree, String root) {
+		Tab<E> tab = nameToTab.get(name);
+		if (tab == null)
+			tab = createTab(name);
+		switchTo(name);
+		initialize(tree, root);
+	}
+
+	private Tab<E> createTab (final String name) {
+		Workspace.Entry<E> entry = workspace.add(name, null);
+		entry.getModel().setLazy(lazy);
+		ViewTree<E> view = new ViewTree<>(skin, white, scale);
+		view.addListener(this);
+		view.addTrash(trash);
+		view.setShortStatuses(true);
+		view.setLogger(logger);
+		// only the active view reacts to drags from the task list
+		view.setSourcesEnabled(false);
+		for (TaskNode node : nodes) {
+			view.addSource(node, node.taskClass);
+		}
+		ViewGraph<E> graph = new ViewGraph<>((TextureRegionDrawable)white, skin);
+		TextButton button = new TextButton(name, skin, "toggle");
+		button.addListener(new ChangeListener() {
+			@Override public void changed (ChangeEvent event, Actor actor) {
+				if (((TextButton)actor).isChecked())
+					switchTo(name);
+			}
+		});
+		tabGroup.add(button);
+		tabBar.add(button).pad(2);
+		Tab<E> tab = new Tab<>(name, entry, view, graph, button);
+		nameToTab.put(name, tab);
+		return tab;
+	}
+
+	/**
+	 * Switch to already opened tab, views of the tabs are kept so this is cheap
+	 *
+	 * @return if tab with given name exists
+	 */
+	public boolean switchTo (String name) {
+		Tab<E> tab = nameToTab.get(name);
+		if (tab == null) {
+			logger.error("BTE", "Tab " + name + " not found");
+			return false;
+		}
+		if (tab == activeTab)
+			return true;
+		if (activeTab != null) {
+			activeTab.view.setSourcesEnabled(false);
+		}
+		// trace is for the tree in the old tab
+		trace = null;
+		deselected();
+		activeTab = tab;
+		workspace.setActive(name);
+		model = tab.entry.getModel();
+		view = tab.view;
+		graph = tab.graph;
+		view.setSourcesEnabled(true);
+		// edit was stopped, selection would be stale
+		view.getSelection().clear();
+		viewCell.setActor(view);
+		graphCell.setActor(graph);
+		if (tab.root != null)
+			resolver.setRoot(tab.root);
+		tab.button.setChecked(true);
+		pauseBtn.setChecked(tab.entry.isPaused());
+		updatePauseText();
+		profileBtn.setChecked(model.getProfiler() != null);
+		workerBtn.setChecked(tab.entry.isBackground());
+		heatBtn.setChecked(graph.getHeatMode() != ViewGraph.HeatMode.OFF);
+		wasValid = model.isValid();
+		toggleButtons(!wasValid);
+		invalidateHierarchy();
+		return true;
+	}
+
+	/**
+	 * Close the tab and discard its tree, last tab is reset instead
+	 */
+	public void close (String name) {
+		Tab<E> tab = nameToTab.get(name);
+		if (tab == null)
+			return;
+		if (nameToTab.size == 1) {
+			reset();
+			return;
+		}
+		if (tab == activeTab) {
+			for (Tab<E> other : nameToTab.values()) {
+				if (other != tab) {
+					switchTo(other.name);
+					break;
+				}
+			}
+		}
+		nameToTab.remove(name);
+		tab.view.setSourcesEnabled(false);
+		tab.graph.reset();
+		tab.view.reset();
+		workspace.remove(name);
+		tabGroup.remove(tab.button);
+		tabBar.removeActor(tab.button);
+	}
+
+	/**
+	 * @return name of the active tab
+	 */
+	public String getActiveTab () {
+		return activeTab.name;
 	}
 
 	/**
@@ -271,17 +627,36 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 		model.reset();
 	}
 
-	private float delay = 1;
-	private float timer;
-
 	@Override public void act (float delta) {
 		super.act(delta);
-		timer += delta;
-		if (timer > delay && !pauseBtn.isChecked()) {
-			timer -= delay;
-			model.step();
+		// steps all trees, including those in background tabs
+		workspace.update(delta);
+		checkBreakpoint();
+		// breakpoints pause the tree on their own
+		if (activeTab.entry.isPaused() != pauseBtn.isChecked()) {
+			pauseBtn.setChecked(activeTab.entry.isPaused());
+			updatePauseText();
 		}
+		view.update(delta);
 		checkValidity(model.isValid());
+		updateStepsLabel(activeTab.entry.getScheduler().getStepsPerSecond());
+		updateTimeline();
+		undoBtn.setDisabled(!model.canUndo());
+		redoBtn.setDisabled(!model.canRedo());
+	}
+
+	private void updateStepsLabel (float stepsPerSecond) {
+		// changes once per second at most, dont rebuild the text every frame
+		if (shownStepsPerSecond == stepsPerSecond) return;
+		shownStepsPerSecond = stepsPerSecond;
+		stepsLabel.setText(Math.round(stepsPerSecond) + " steps/s");
+	}
+
+	/**
+	 * @return scheduler of the active tree, for stepping modes other than fixed delay
+	 */
+	public StepScheduler getScheduler () {
+		return activeTab.entry.getScheduler();
 	}
 
 	private boolean wasValid;
@@ -297,8 +672,24 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 		stepBtn.setDisabled(disabled);
 	}
 
+	/**
+	 * Set delay between steps for all trees, see {@link Workspace.Entry#setStepDelay(float)} for delay of a single tree
+	 */
 	public void setStepDelay (float delay) {
-		this.delay = delay;
+		workspace.setDefaultStepDelay(delay);
+		for (Workspace.Entry<E> entry : workspace.getEntries()) {
+			entry.setStepDelay(delay);
+		}
+	}
+
+	/**
+	 * Create model and view nodes only when they are needed, for very large trees. Takes effect on next initialize
+	 */
+	public void setLazy (boolean lazy) {
+		this.lazy = lazy;
+		for (Workspace.Entry<E> entry : workspace.getEntries()) {
+			entry.getModel().setLazy(lazy);
+		}
 	}
 
 	private ObjectMap<String, Tree.Node> catToNode = new ObjectMap<>();
@@ -307,10 +698,27 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 	}
 
 	public void addTaskClass (String category, Class<? extends Task> aClass) {
-		model.getTaskLibrary().add(aClass);
+		addTaskNode(category, aClass);
+		tasks.expandAll();
+	}
+
+	/**
+	 * Add all classes to the task list at once, for example ones found by {@link TaskClassScanner}
+	 */
+	public void addTaskClasses (String category, Array<Class<? extends Task<?>>> classes) {
+		for (Class<? extends Task<?>> aClass : classes) {
+			addTaskNode(category, aClass);
+		}
+		tasks.expandAll();
+	}
+
+	private void addTaskNode (String category, Class<? extends Task> aClass) {
+		workspace.getTaskLibrary().add(aClass);
 		TaskNode node = new TaskNode(aClass, skin);
 		nodes.add(node);
-		view.addSource(node, aClass);
+		for (Tab<E> tab : nameToTab.values()) {
+			tab.view.addSource(node, aClass);
+		}
 		Tree.Node catNode = catToNode.get(category);
 		if (catNode == null) {
 			catNode = new Tree.Node(new Label(category, skin));
@@ -318,25 +726,55 @@ public class BehaviorTreeEditor<E> extends Table implements ViewTree.ViewTaskSel
 			tasks.add(catNode);
 		}
 		catNode.add(new Tree.Node(node));
-		tasks.expandAll();
 	}
 
+	/**
+	 * @return library used to load subtrees of includes, with cache statistics
+	 */
+	public CachedBehaviorTreeLibrary getLibrary () {
+		return library;
+	}
+
+	/**
+	 * @return model of the active tab
+	 */
 	public ModelTree<E> getModel () {
 		return model;
 	}
 
+	public Workspace<E> getWorkspace () {
+		return workspace;
+	}
+
 	public ViewTree<E> getView () {
 		return view;
 	}
 
 	public void setTaskInjector (TaskLibrary.Injector<E> injector) {
-		model.getTaskLibrary().setInjector(injector);
+		workspace.getTaskLibrary().setInjector(injector);
 	}
 
 	public BehaviorTreeParser.DefaultBehaviorTreeReader<E> getTreeReader () {
 		return treeReader;
 	}
 
+	private static class Tab<E> {
+		final String name;
+		final Workspace.Entry<E> entry;
+		final ViewTree<E> view;
+		final ViewGraph<E> graph;
+		final TextButton button;
+		String root;
+
+		public Tab (String name, Workspace.Entry<E> entry, ViewTree<E> view, ViewGraph<E> graph, TextButton button) {
+			this.name = name;
+			this.entry = entry;
+			this.view = view;
+			this.graph = graph;
+			this.button = button;
+		}
+	}
+
 	private static class TaskNode extends Label {
 		public Class<? extends Task> taskClass;
 
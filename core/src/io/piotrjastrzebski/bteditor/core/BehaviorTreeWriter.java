@@ -3,7 +3,6 @@ package io.piotrjastrzebski.bteditor.core;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.btree.BehaviorTree;
 import com.badlogic.gdx.ai.btree.Task;
-import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
 import com.badlogic.gdx.ai.btree.decorator.Include;
 import com.badlogic.gdx.ai.btree.utils.DistributionAdapters;
 import com.badlogic.gdx.ai.utils.random.*;
@@ -11,11 +10,12 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.utils.StringBuilder;
-import com.badlogic.gdx.utils.reflect.Annotation;
-import com.badlogic.gdx.utils.reflect.ClassReflection;
-import com.badlogic.gdx.utils.reflect.Field;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
+import io.piotrjastrzebski.bteditor.core.model.FlatModelTree;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+import io.piotrjastrzebski.bteditor.core.model.TaskLibrary;
+import io.piotrjastrzebski.bteditor.core.model.TaskMetadata;
 
 import java.util.Comparator;
 
@@ -45,19 +45,10 @@ public class BehaviorTreeWriter {
 	 * @return serialized tree
 	 */
 	public static String serialize(Task task) {
-		Array<Class<? extends Task>> classes = new Array<>();
+		Array<Class<?>> classes = new Array<>();
 		findClasses(task, classes);
-		classes.sort(new Comparator<Class<? extends Task>>() {
-			@Override public int compare (Class<? extends Task> o1, Class<? extends Task> o2) {
-				return o1.getSimpleName().compareTo(o2.getSimpleName());
-			}
-		});
-
-		StringBuilder sb = new StringBuilder("# Alias definitions\n");
-
-		for (Class<? extends Task> aClass : classes) {
-			sb.append("import ").append(toAlias(aClass)).append(":\"").append(aClass.getCanonicalName()).append("\"\n");
-		}
+		StringBuilder sb = new StringBuilder();
+		writeImports(sb, classes);
 
 		sb.append("\nroot\n");
 		writeTask(sb, task, 1);
@@ -83,27 +74,18 @@ public class BehaviorTreeWriter {
 	 * @param task task to serialize
 	 * @return serialized tree
 	 */
-	public static String serialize(ModelTask task) {
-		Array<Class<? extends Task>> classes = new Array<>();
+	public static String serialize(ModelTask<?> task) {
+		Array<Class<?>> classes = new Array<>();
 		findClasses(task.getTask(), classes);
-		classes.sort(new Comparator<Class<? extends Task>>() {
-			@Override public int compare (Class<? extends Task> o1, Class<? extends Task> o2) {
-				return o1.getSimpleName().compareTo(o2.getSimpleName());
-			}
-		});
-
-		StringBuilder sb = new StringBuilder("# Alias definitions\n");
-
-		for (Class<? extends Task> aClass : classes) {
-			sb.append("import ").append(toAlias(aClass)).append(":\"").append(aClass.getCanonicalName()).append("\"\n");
-		}
+		StringBuilder sb = new StringBuilder();
+		writeImports(sb, classes);
 
 		sb.append("\nroot\n");
 		writeTask(sb, task, 1);
 		return sb.toString();
 	}
 
-	private static void writeTask (StringBuilder sb, ModelTask modelTask, int depth) {
+	private static <E> void writeTask (StringBuilder sb, ModelTask<E> modelTask, int depth) {
 		if (modelTask.hasComment()) {
 			for (int i = 0; i < depth; i++) {
 				sb.append("  ");
@@ -115,50 +97,128 @@ public class BehaviorTreeWriter {
 		for (int i = 0; i < depth; i++) {
 			sb.append("  ");
 		}
-		Task task = modelTask.getTask();
+		Task<E> task = modelTask.getTask();
 		sb.append(toAlias(task.getClass()));
 		getTaskAttributes(sb, task);
 		sb.append('\n');
 		// include may have a whole tree as child, ignore it
 		if (task instanceof Include) return;
+		if (!modelTask.isMaterialized()) {
+			// dont materialize lazy subtrees just to save them
+			for (int i = 0; i < task.getChildCount(); i++) {
+				writeTask(sb, modelTask.getModel(), task.getChild(i), depth + 1);
+			}
+			return;
+		}
 		for (int i = 0; i < modelTask.getChildCount(); i++) {
 			writeTask(sb, modelTask.getChild(i), depth + 1);
 		}
 	}
 
+	private static <E> void writeTask (StringBuilder sb, ModelTree<E> model, Task<E> task, int depth) {
+		String comment = model.getComment(task);
+		if (comment != null && comment.trim().length() > 0) {
+			for (int i = 0; i < depth; i++) {
+				sb.append("  ");
+			}
+			sb.append("# ");
+			sb.append(comment);
+			sb.append('\n');
+		}
+		for (int i = 0; i < depth; i++) {
+			sb.append("  ");
+		}
+		sb.append(toAlias(task.getClass()));
+		getTaskAttributes(sb, task);
+		sb.append('\n');
+		if (task instanceof Include) return;
+		for (int i = 0; i < task.getChildCount(); i++) {
+			writeTask(sb, model, task.getChild(i), depth + 1);
+		}
+	}
+
+	/**
+	 * Serialize the tree to parser readable format
+	 * @param tree tree to serialize
+	 * @return serialized tree
+	 */
+	public static <E> String serialize (FlatModelTree<E> tree) {
+		final Array<Class<?>> classes = new Array<>();
+		final StringBuilder body = new StringBuilder();
+		tree.visit(new FlatModelTree.Visitor<E>() {
+			// depth of include we are in, its children are not written
+			int includeDepth = -1;
+
+			@Override public void visit (FlatModelTree<E> tree, int id, int depth) {
+				Task<E> task = tree.getTask(id);
+				addClass(task.getClass(), classes);
+				if (includeDepth != -1) {
+					if (depth > includeDepth) return;
+					includeDepth = -1;
+				}
+				String comment = tree.getComment(id);
+				if (comment != null) {
+					indent(body, depth + 1);
+					body.append("# ").append(comment).append('\n');
+				}
+				indent(body, depth + 1);
+				body.append(toAlias(task.getClass()));
+				getTaskAttributes(body, task);
+				body.append('\n');
+				if (task instanceof Include) includeDepth = depth;
+			}
+		});
+		StringBuilder sb = new StringBuilder();
+		writeImports(sb, classes);
+
+		sb.append("\nroot\n");
+		sb.append(body);
+		return sb.toString();
+	}
+
+	private static void writeImports (StringBuilder sb, Array<Class<?>> classes) {
+		classes.sort(new Comparator<Class<?>>() {
+			@Override public int compare (Class<?> o1, Class<?> o2) {
+				return o1.getSimpleName().compareTo(o2.getSimpleName());
+			}
+		});
+		sb.append("# Alias definitions\n");
+		for (Class<?> aClass : classes) {
+			sb.append("import ").append(toAlias(aClass)).append(":\"").append(aClass.getCanonicalName()).append("\"\n");
+		}
+	}
+
+	private static void indent (StringBuilder sb, int depth) {
+		for (int i = 0; i < depth; i++) {
+			sb.append("  ");
+		}
+	}
+
 	private static void getTaskAttributes (StringBuilder sb, Task task) {
-		Class<?> aClass = task.getClass();
-		Field[] fields = ClassReflection.getFields(aClass);
-		for (Field f : fields) {
-			Annotation a = f.getDeclaredAnnotation(TaskAttribute.class);
-			if (a == null)
-				continue;
-			TaskAttribute annotation = a.getAnnotation(TaskAttribute.class);
+		for (TaskMetadata.Attribute attribute : TaskLibrary.getMetadata(task.getClass()).getAttributes()) {
 			sb.append(" ");
-			getFieldString(sb, task, annotation, f);
+			getFieldString(sb, task, attribute);
 		}
 	}
 
-	private static void getFieldString (StringBuilder sb, Task task, TaskAttribute ann, Field field) {
-		// prefer name from annotation if there is one
-		String name = ann.name();
-		if (name == null || name.length() == 0) {
-			name = field.getName();
-		}
-		sb.append(name);
+	private static void getFieldString (StringBuilder sb, Task<?> task, TaskMetadata.Attribute attribute) {
+		sb.append(attribute.getName());
 		Object o;
 		try {
-			field.setAccessible(true);
-			o = field.get(task);
+			o = attribute.get(task);
 		} catch (ReflectionException e) {
 			Gdx.app.error("", "Failed to get field", e);
 			return;
 		}
-		if (field.getType().isEnum() || field.getType() == String.class) {
+		switch (attribute.getKind()) {
+		case TaskMetadata.Attribute.STRING:
+		case TaskMetadata.Attribute.ENUM:
 			sb.append(":\"").append(o).append("\"");
-		} else if (Distribution.class.isAssignableFrom(field.getType())) {
+			break;
+		case TaskMetadata.Attribute.DISTRIBUTION:
 			sb.append(":\"").append(toParseableString((Distribution)o)).append("\"");
-		} else {
+			break;
+		default:
 			sb.append(":").append(o);
 		}
 	}
@@ -177,16 +237,19 @@ public class BehaviorTreeWriter {
 		return adapters.toString(distribution);
 	}
 
-	private static void findClasses (Task task, Array<Class<? extends Task>> classes) {
-		Class<? extends Task> aClass = task.getClass();
+	private static void findClasses (Task<?> task, Array<Class<?>> classes) {
+		addClass(task.getClass(), classes);
+		for (int i = 0; i < task.getChildCount(); i++) {
+			findClasses(task.getChild(i), classes);
+		}
+	}
+
+	private static void addClass (Class<?> aClass, Array<Class<?>> classes) {
 		String cName = aClass.getCanonicalName();
 		// ignore task classes from gdx-ai, as they are already accessible by the parser
 		if (!cName.startsWith("com.badlogic.gdx.ai.btree.") && !classes.contains(aClass, true)) {
 			classes.add(aClass);
 		}
-		for (int i = 0; i < task.getChildCount(); i++) {
-			findClasses(task.getChild(i), classes);
-		}
 	}
 
 	/**
@@ -194,7 +257,7 @@ public class BehaviorTreeWriter {
 	 * @param aClass class of task
 	 * @return valid alias for the class
 	 */
-	public static String toAlias (Class<? extends Task> aClass) {
+	public static String toAlias (Class<?> aClass) {
 		if (aClass == null) throw new IllegalArgumentException("Class cannot be null");
 		String name = aClass.getSimpleName();
 		return Character.toLowerCase(name.charAt(0)) + (name.length() > 1 ? name.substring(1) : "");
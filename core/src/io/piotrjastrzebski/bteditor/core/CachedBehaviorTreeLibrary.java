@@ -0,0 +1,118 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.utils.BehaviorTreeLibrary;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.OrderedMap;
+
+/**
+ * {@link BehaviorTreeLibrary} that caches parsed subtrees for {@link com.badlogic.gdx.ai.btree.decorator.Include}s
+ * <p>
+ * Subtrees are keyed by resolved path and reparsed when the file modification time changes. Least recently used
+ * subtrees are evicted when the cache is full. Every include gets a clone of the cached tree.
+ */
+public class CachedBehaviorTreeLibrary extends BehaviorTreeLibrary {
+	private OrderedMap<String, Entry> pathToEntry = new OrderedMap<>();
+	private int maxSize;
+	private int hits;
+	private int misses;
+	private int evictions;
+
+	public CachedBehaviorTreeLibrary (FileHandleResolver resolver) {
+		this(resolver, 64);
+	}
+
+	/**
+	 * @param resolver used to find subtree files
+	 * @param maxSize  max number of cached subtrees
+	 */
+	public CachedBehaviorTreeLibrary (FileHandleResolver resolver, int maxSize) {
+		super(resolver);
+		setMaxSize(maxSize);
+	}
+
+	@Override protected BehaviorTree<?> retrieveArchetypeTree (String treeReference) {
+		// explicitly registered trees take precedence
+		BehaviorTree<?> registered = repository.get(treeReference);
+		if (registered != null)
+			return registered;
+
+		FileHandle fh = resolver.resolve(treeReference);
+		String path = fh.path();
+		long lastModified = fh.lastModified();
+		Entry entry = pathToEntry.remove(path);
+		if (entry != null && entry.lastModified == lastModified) {
+			hits++;
+			// most recently used is last
+			pathToEntry.put(path, entry);
+			return entry.tree;
+		}
+		misses++;
+		if (entry == null) {
+			entry = new Entry();
+		}
+		entry.tree = parser.parse(fh, null);
+		entry.lastModified = lastModified;
+		pathToEntry.put(path, entry);
+		while (pathToEntry.size > maxSize) {
+			pathToEntry.remove(pathToEntry.orderedKeys().first());
+			evictions++;
+		}
+		return entry.tree;
+	}
+
+	public void setMaxSize (int maxSize) {
+		if (maxSize < 1)
+			throw new IllegalArgumentException("Max size must be >= 1, is " + maxSize);
+		this.maxSize = maxSize;
+		while (pathToEntry.size > maxSize) {
+			pathToEntry.remove(pathToEntry.orderedKeys().first());
+			evictions++;
+		}
+	}
+
+	public int getMaxSize () {
+		return maxSize;
+	}
+
+	/**
+	 * @return number of cached subtrees
+	 */
+	public int getSize () {
+		return pathToEntry.size;
+	}
+
+	public int getHitCount () {
+		return hits;
+	}
+
+	public int getMissCount () {
+		return misses;
+	}
+
+	public int getEvictionCount () {
+		return evictions;
+	}
+
+	/**
+	 * Drop all cached subtrees, statistics are kept
+	 */
+	public void clear () {
+		pathToEntry.clear();
+	}
+
+	@Override public String toString () {
+		return "CachedBehaviorTreeLibrary{" +
+			"size=" + pathToEntry.size +
+			", hits=" + hits +
+			", misses=" + misses +
+			", evictions=" + evictions +
+			'}';
+	}
+
+	private static class Entry {
+		BehaviorTree<?> tree;
+		long lastModified;
+	}
+}
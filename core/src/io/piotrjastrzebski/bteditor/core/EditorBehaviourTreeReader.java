@@ -4,13 +4,15 @@ import com.badlogic.gdx.ai.btree.Task;
 import com.badlogic.gdx.ai.btree.utils.BehaviorTreeParser;
 import com.badlogic.gdx.utils.ObjectMap;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTree;
 
 /**
  * TODO add comments to model tasks somehow, and save them when creating serialized tree
  *
  * Created by PiotrJ on 03/11/15.
  */
-public class EditorBehaviourTreeReader<E> extends BehaviorTreeParser.DefaultBehaviorTreeReader<E> {
+public class EditorBehaviourTreeReader<E> extends BehaviorTreeParser.DefaultBehaviorTreeReader<E>
+	implements ModelTree.CommentSource {
 
 	ObjectMap<Task, String> taskToComment;
 	public EditorBehaviourTreeReader () {
@@ -38,12 +40,18 @@ public class EditorBehaviourTreeReader<E> extends BehaviorTreeParser.DefaultBeha
 		}
 	}
 
+	@Override public String getComment (Task<?> task) {
+		return taskToComment.get(task);
+	}
+
 	public void addComments(ModelTask modelTask) {
 		// TODO make this more clever, so it works on cloned tree. Perhaps record position of the task in the tree?
 		String comment = taskToComment.get(modelTask.getTask());
 		if (comment != null) {
 			modelTask.setComment(comment);
 		}
+		// lazy tasks get comments when they are materialized
+		if (!modelTask.isMaterialized()) return;
 		for (int i = 0; i < modelTask.getChildCount(); i++) {
 			addComments(modelTask.getChild(i));
 		}
@@ -0,0 +1,266 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.IntIntMap;
+import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.piotrjastrzebski.bteditor.core.StatusTraceWriter.*;
+
+/**
+ * Reads trace written by {@link StatusTraceWriter}
+ * <p>
+ * File is memory mapped. When opened, a sparse index is built with first tick and statuses of all tasks every
+ * {@link #INDEX_INTERVAL} records. Looking up a tick is a binary search over the index and then over a single block
+ * of records, getting statuses at a tick replays at most one block.
+ */
+public class StatusTraceReader implements Closeable {
+	private final static Task.Status[] STATUSES = Task.Status.values();
+	public final static int INDEX_INTERVAL = 4096;
+
+	private final RandomAccessFile file;
+	private final MappedByteBuffer[] regions;
+	private final long count;
+	private int taskCount;
+	// first tick of each block
+	private int[] indexTicks;
+	// status ordinals of all tasks before first record of each block
+	private byte[][] keyframes;
+	private byte[] statuses;
+
+	public StatusTraceReader (File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = this.file.getChannel();
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("Not a status trace: " + file);
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a status trace: " + file);
+			short version = header.getShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported trace version " + version + " in " + file);
+			if (header.getShort() != RECORD_SIZE)
+				throw new IOException("Unexpected record size in " + file);
+			// file may be longer if writer was not closed, or shorter if it was not flushed
+			count = Math.min(header.getLong(), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+			int regionCount = (int)((count + REGION_RECORDS - 1) / REGION_RECORDS);
+			regions = new MappedByteBuffer[regionCount];
+			for (int i = 0; i < regionCount; i++) {
+				long records = Math.min(REGION_RECORDS, count - (long)i * REGION_RECORDS);
+				long position = HEADER_SIZE + (long)i * REGION_RECORDS * RECORD_SIZE;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, records * RECORD_SIZE);
+			}
+			buildIndex();
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	private void buildIndex () {
+		int maxId = -1;
+		for (long i = 0; i < count; i++) {
+			maxId = Math.max(maxId, getId(i));
+		}
+		taskCount = maxId + 1;
+		statuses = new byte[taskCount];
+		int blocks = (int)((count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+		indexTicks = new int[blocks];
+		keyframes = new byte[blocks][];
+		byte[] current = new byte[taskCount];
+		for (int block = 0; block < blocks; block++) {
+			long start = (long)block * INDEX_INTERVAL;
+			indexTicks[block] = getTick(start);
+			keyframes[block] = current.clone();
+			long end = Math.min(start + INDEX_INTERVAL, count);
+			for (long i = start; i < end; i++) {
+				current[getId(i)] = getToOrdinal(i);
+			}
+		}
+	}
+
+	private MappedByteBuffer region (long i) {
+		if (i < 0 || i >= count)
+			throw new IndexOutOfBoundsException("index " + i + " out of range, count " + count);
+		return regions[(int)(i / REGION_RECORDS)];
+	}
+
+	private static int offset (long i) {
+		return (int)(i % REGION_RECORDS) * RECORD_SIZE;
+	}
+
+	/**
+	 * @param i index of the record, 0 is the oldest
+	 */
+	public int getTick (long i) {
+		return region(i).getInt(offset(i));
+	}
+
+	public int getId (long i) {
+		return region(i).getInt(offset(i) + 4);
+	}
+
+	public Task.Status getFrom (long i) {
+		return STATUSES[region(i).get(offset(i) + 8)];
+	}
+
+	public Task.Status getTo (long i) {
+		return STATUSES[getToOrdinal(i)];
+	}
+
+	private byte getToOrdinal (long i) {
+		return region(i).get(offset(i) + 9);
+	}
+
+	/**
+	 * @return number of records in the trace
+	 */
+	public long getCount () {
+		return count;
+	}
+
+	/**
+	 * @return number of distinct task ids in the trace
+	 */
+	public int getTaskCount () {
+		return taskCount;
+	}
+
+	/**
+	 * @return tick of the first record, 0 if there are none
+	 */
+	public int getFirstTick () {
+		return count > 0 ? getTick(0) : 0;
+	}
+
+	/**
+	 * @return tick of the last record, 0 if there are none
+	 */
+	public int getLastTick () {
+		return count > 0 ? getTick(count - 1) : 0;
+	}
+
+	/**
+	 * @return last block with first tick <= given tick, -1 if there is none
+	 */
+	private int findBlock (int tick) {
+		int lo = 0;
+		int hi = indexTicks.length - 1;
+		int found = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (indexTicks[mid] <= tick) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return index of the first record with tick >= given tick, {@link #getCount()} if there is none
+	 */
+	public long find (int tick) {
+		// block may start with same tick as ends the one before it
+		int block = findBlock(tick - 1);
+		long lo = Math.max(block, 0) * (long)INDEX_INTERVAL;
+		long hi = block < 0 ? 0 : Math.min(lo + INDEX_INTERVAL, count);
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			if (getTick(mid) < tick) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Find status of each task at the end of given tick
+	 *
+	 * @param out array of at least {@link #getTaskCount()} length, filled with status ordinals by task id
+	 * @return out
+	 */
+	public byte[] statusesAt (int tick, byte[] out) {
+		int block = findBlock(tick);
+		if (block < 0) {
+			for (int i = 0; i < taskCount; i++) {
+				out[i] = (byte)Task.Status.FRESH.ordinal();
+			}
+			return out;
+		}
+		System.arraycopy(keyframes[block], 0, out, 0, taskCount);
+		long end = Math.min((long)(block + 1) * INDEX_INTERVAL, count);
+		for (long i = (long)block * INDEX_INTERVAL; i < end; i++) {
+			if (getTick(i) > tick)
+				break;
+			out[getId(i)] = getToOrdinal(i);
+		}
+		return out;
+	}
+
+	/**
+	 * Find status of each task of the model at the end of given tick
+	 * <p>
+	 * Model must have the same structure as the recorded tree, tasks are matched by their pre order index.
+	 *
+	 * @param out cleared, filled with {@link ModelTask#getId()} to status ordinal
+	 * @return out
+	 */
+	public IntIntMap statusesAt (int tick, ModelTree<?> model, IntIntMap out) {
+		out.clear();
+		statusesAt(tick, statuses);
+		if (model.getRootNode() != null)
+			collect(model.getRootNode(), 0, out);
+		return out;
+	}
+
+	private int collect (ModelTask<?> task, int id, IntIntMap out) {
+		if (id < taskCount)
+			out.put(task.getId(), statuses[id]);
+		id++;
+		// lazy subtrees have no model tasks to show statuses on, dont materialize them, only skip their ids
+		if (!task.isMaterialized()) {
+			Task<?> wrapped = task.getTask();
+			for (int i = 0; i < wrapped.getChildCount(); i++) {
+				id += count(wrapped.getChild(i));
+			}
+			return id;
+		}
+		for (int i = 0; i < task.getChildCount(); i++) {
+			id = collect(task.getChild(i), id, out);
+		}
+		return id;
+	}
+
+	private static int count (Task<?> task) {
+		int count = 1;
+		for (int i = 0; i < task.getChildCount(); i++) {
+			count += count(task.getChild(i));
+		}
+		return count;
+	}
+
+	@Override public void close () throws IOException {
+		file.close();
+	}
+
+	@Override public String toString () {
+		return "StatusTraceReader{" +
+			"count=" + count +
+			", tasks=" + taskCount +
+			", ticks=" + getFirstTick() + ".." + getLastTick() +
+			'}';
+	}
+}
@@ -0,0 +1,175 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records status changes of a running {@link BehaviorTree} into a binary trace file, to be inspected later with
+ * {@link StatusTraceReader}
+ * <p>
+ * Records have fixed width and are written into memory mapped regions of the file, so recording is a few puts into a
+ * buffer. Each record holds tick, task id, previous status and new status. Task ids are indices of tasks in pre order,
+ * without guards, as in {@link io.piotrjastrzebski.bteditor.core.model.ModelTree}. Tasks that are not in the tree when
+ * recording starts, like guards and included subtrees, get ids after that.
+ * <p>
+ * Call {@link #step()} instead of {@link BehaviorTree#step()}, or {@link #nextTick()} before each step.
+ *
+ * @param <E> type of the blackboard object
+ */
+public class StatusTraceWriter<E> implements BehaviorTree.Listener<E>, Closeable {
+	// BTTR
+	final static int MAGIC = 0x42545452;
+	final static short VERSION = 1;
+	// magic, version, record size, record count
+	final static int HEADER_SIZE = 16;
+	final static int COUNT_OFFSET = 8;
+	// tick, id, from, to, padding
+	final static int RECORD_SIZE = 12;
+	// records in single mapped region, must fit in a buffer
+	final static int REGION_RECORDS = 1 << 20;
+
+	private final BehaviorTree<E> tree;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer region;
+	private int regionIndex = -1;
+	private long count;
+	private int tick;
+	private final ObjectIntMap<Task<E>> taskToId = new ObjectIntMap<>();
+	private int nextId;
+	private boolean closed;
+
+	/**
+	 * Start recording, file is overwritten
+	 *
+	 * @param tree tree to record
+	 * @param file file to write to
+	 */
+	public StatusTraceWriter (BehaviorTree<E> tree, File file) throws IOException {
+		if (tree == null)
+			throw new IllegalArgumentException("Tree cannot be null!");
+		this.tree = tree;
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		channel = this.file.getChannel();
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort((short)RECORD_SIZE);
+		header.putLong(0);
+		if (tree.getChildCount() > 0)
+			index(tree.getChild(0));
+		tree.addListener(this);
+	}
+
+	private void index (Task<E> task) {
+		taskToId.put(task, nextId++);
+		for (int i = 0; i < task.getChildCount(); i++) {
+			index(task.getChild(i));
+		}
+	}
+
+	private void nextRegion () {
+		regionIndex++;
+		long position = HEADER_SIZE + (long)regionIndex * REGION_RECORDS * RECORD_SIZE;
+		try {
+			region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_RECORDS * RECORD_SIZE);
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Failed to map trace region " + regionIndex, e);
+		}
+	}
+
+	@Override public void statusUpdated (Task<E> task, Task.Status previousStatus) {
+		// tree reports its own status as well, same as its root
+		if (closed || task == tree)
+			return;
+		int id = taskToId.get(task, -1);
+		if (id < 0) {
+			id = nextId++;
+			taskToId.put(task, id);
+		}
+		if (region == null || !region.hasRemaining())
+			nextRegion();
+		region.putInt(tick);
+		region.putInt(id);
+		region.put((byte)(previousStatus != null ? previousStatus.ordinal() : Task.Status.FRESH.ordinal()));
+		region.put((byte)task.getStatus().ordinal());
+		region.putShort((short)0);
+		count++;
+	}
+
+	@Override public void childAdded (Task<E> task, int index) {
+
+	}
+
+	/**
+	 * Start next tick, call before each step of the tree
+	 */
+	public void nextTick () {
+		tick++;
+	}
+
+	/**
+	 * Start next tick and step the tree
+	 */
+	public void step () {
+		tick++;
+		tree.step();
+	}
+
+	public int getTick () {
+		return tick;
+	}
+
+	/**
+	 * @return number of records written
+	 */
+	public long getCount () {
+		return count;
+	}
+
+	/**
+	 * Write records to the disk, trace can be read up to this point even if the writer is not closed
+	 */
+	public void flush () {
+		header.putLong(COUNT_OFFSET, count);
+		if (region != null)
+			region.force();
+		header.force();
+	}
+
+	/**
+	 * Stop recording and trim the file
+	 */
+	@Override public void close () throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		tree.removeListener(this);
+		flush();
+		try {
+			channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+		} catch (IOException e) {
+			// some systems dont allow truncating mapped files, reader only looks at records in the header count
+		}
+		file.close();
+	}
+
+	@Override public String toString () {
+		return "StatusTraceWriter{" +
+			"tick=" + tick +
+			", count=" + count +
+			", closed=" + closed +
+			'}';
+	}
+}
@@ -0,0 +1,449 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.annotation.TaskConstraint;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Finds {@link Task} classes in given packages, so they dont have to be added to the editor one by one
+ * <p>
+ * Each package may be spread over several class directories and jars, called roots here. Classes of all roots are
+ * checked in parallel. Results are saved in an index file keyed by a fingerprint of each root, roots that did not change since
+ * are not scanned again.
+ * <p>
+ * Found classes are public, concrete, have a no-arg constructor and a {@link TaskConstraint} in their hierarchy.
+ * Desktop only, requires access to the class files.
+ */
+public class TaskClassScanner {
+	private final static String TAG = TaskClassScanner.class.getSimpleName();
+	private final static String INDEX_HEADER = "# task class index v1";
+	// classes checked by a single job, so small roots are not split into tiny jobs
+	private final static int MIN_CHUNK = 32;
+
+	private ClassLoader loader;
+	private FileHandle indexFile;
+	private ObjectMap<String, IndexEntry> index;
+	private boolean indexChanged;
+	private int threads;
+	private int scannedRoots;
+	private int indexedRoots;
+	private Logger logger = BehaviorTreeEditor.NULL_LOGGER;
+
+	public TaskClassScanner () {
+		this(TaskClassScanner.class.getClassLoader(), null);
+	}
+
+	/**
+	 * @param loader    used to find and load the classes
+	 * @param indexFile file to save results in, null to always scan
+	 */
+	public TaskClassScanner (ClassLoader loader, FileHandle indexFile) {
+		this.loader = loader;
+		this.indexFile = indexFile;
+		threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Find task classes in given packages and their sub packages
+	 *
+	 * @return found classes, sorted by name
+	 */
+	public Array<Class<? extends Task<?>>> scan (String... packages) {
+		scannedRoots = 0;
+		indexedRoots = 0;
+		loadIndex();
+		Array<Root> roots = new Array<>();
+		for (String pkg : packages) {
+			findRoots(pkg, roots);
+		}
+
+		Array<String> names = new Array<>();
+		Array<Root> toScan = new Array<>();
+		for (Root root : roots) {
+			IndexEntry entry = index.get(root.key);
+			if (entry != null && entry.fingerprint.equals(root.fingerprint)) {
+				names.addAll(entry.classes);
+				indexedRoots++;
+			} else {
+				toScan.add(root);
+			}
+		}
+		if (toScan.size > 0) {
+			scanRoots(toScan, names);
+		}
+		if (indexChanged) {
+			saveIndex();
+		}
+
+		names.sort();
+		Array<Class<? extends Task<?>>> classes = new Array<>();
+		for (String name : names) {
+			Class<? extends Task<?>> aClass = load(name);
+			if (aClass != null && !classes.contains(aClass, true))
+				classes.add(aClass);
+		}
+		return classes;
+	}
+
+	private void scanRoots (Array<Root> roots, Array<String> out) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// listing is mostly io, one job per root
+			Array<Future<Array<String>>> listings = new Array<>();
+			for (final Root root : roots) {
+				listings.add(executor.submit(new Callable<Array<String>>() {
+					@Override public Array<String> call () throws Exception {
+						return listClasses(root);
+					}
+				}));
+			}
+			// loading is the slow part, split classes of each root so a single big root uses all threads
+			Array<Array<Future<Array<String>>>> checks = new Array<>();
+			for (int i = 0; i < roots.size; i++) {
+				Array<String> candidates = get(listings.get(i), roots.get(i));
+				if (Thread.currentThread().isInterrupted())
+					return;
+				checks.add(candidates != null ? checkClasses(executor, candidates) : null);
+			}
+			for (int i = 0; i < roots.size; i++) {
+				Root root = roots.get(i);
+				Array<Future<Array<String>>> chunks = checks.get(i);
+				if (chunks == null)
+					continue;
+				Array<String> found = new Array<>();
+				for (Future<Array<String>> chunk : chunks) {
+					Array<String> names = get(chunk, root);
+					if (Thread.currentThread().isInterrupted())
+						return;
+					if (names == null) {
+						found = null;
+						break;
+					}
+					found.addAll(names);
+				}
+				if (found == null)
+					continue;
+				found.sort();
+				out.addAll(found);
+				scannedRoots++;
+				IndexEntry entry = new IndexEntry();
+				entry.fingerprint = root.fingerprint;
+				entry.classes = found;
+				index.put(root.key, entry);
+				indexChanged = true;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return result of the job, null if it failed or we were interrupted
+	 */
+	private Array<String> get (Future<Array<String>> future, Root root) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error(TAG, "Interrupted while scanning " + root.key);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				logger.error(TAG, "Failed to scan " + root.key, (Exception)cause);
+			} else {
+				logger.error(TAG, "Failed to scan " + root.key + ", " + cause);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return jobs that check the classes, each returns names of valid tasks in its part
+	 */
+	private Array<Future<Array<String>>> checkClasses (ExecutorService executor, final Array<String> names) {
+		Array<Future<Array<String>>> chunks = new Array<>();
+		int size = Math.max(MIN_CHUNK, (names.size + threads - 1) / threads);
+		for (int start = 0; start < names.size; start += size) {
+			final int from = start;
+			final int to = Math.min(start + size, names.size);
+			chunks.add(executor.submit(new Callable<Array<String>>() {
+				@Override public Array<String> call () throws Exception {
+					Array<String> found = new Array<>();
+					for (int i = from; i < to; i++) {
+						String name = names.get(i);
+						if (load(name) != null)
+							found.add(name);
+					}
+					return found;
+				}
+			}));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Called on a worker thread
+	 *
+	 * @return names of classes in the root, without anonymous classes
+	 */
+	private Array<String> listClasses (Root root) throws IOException {
+		Array<String> candidates = new Array<>();
+		if (root.jar != null) {
+			JarFile jar = new JarFile(root.jar);
+			try {
+				Enumeration<JarEntry> entries = jar.entries();
+				while (entries.hasMoreElements()) {
+					String name = entries.nextElement().getName();
+					if (name.startsWith(root.path) && name.endsWith(".class"))
+						candidates.add(toClassName(name));
+				}
+			} finally {
+				jar.close();
+			}
+		} else {
+			String pkg = root.path.replace('/', '.');
+			findClassFiles(root.dir, pkg.substring(0, pkg.length() - 1), candidates);
+		}
+		Array<String> named = new Array<>(candidates.size);
+		for (String name : candidates) {
+			// anonymous classes cant be tasks we want
+			int inner = name.lastIndexOf('$');
+			if (inner >= 0 && inner + 1 < name.length() && Character.isDigit(name.charAt(inner + 1)))
+				continue;
+			named.add(name);
+		}
+		return named;
+	}
+
+	private static void findClassFiles (File dir, String pkg, Array<String> out) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				findClassFiles(file, pkg + "." + name, out);
+			} else if (name.endsWith(".class")) {
+				out.add(pkg + "." + name.substring(0, name.length() - 6));
+			}
+		}
+	}
+
+	private static String toClassName (String path) {
+		return path.substring(0, path.length() - 6).replace('/', '.');
+	}
+
+	/**
+	 * @return class with given name if it is a valid task, null otherwise
+	 */
+	private Class<? extends Task<?>> load (String name) {
+		try {
+			// dont run static initializers of everything we find
+			return load(Class.forName(name, false, loader));
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (LinkageError e) {
+			// missing optional dependency, may be thrown by any of the checks, not only when loading
+			return null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Task<?>> load (Class<?> aClass) {
+		if (!Task.class.isAssignableFrom(aClass))
+			return null;
+		int mod = aClass.getModifiers();
+		if (!Modifier.isPublic(mod) || Modifier.isAbstract(mod) || aClass.isInterface())
+			return null;
+		if (aClass.getEnclosingClass() != null && !Modifier.isStatic(mod))
+			return null;
+		try {
+			aClass.getConstructor();
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+		if (!hasConstraint(aClass))
+			return null;
+		return (Class<? extends Task<?>>)aClass;
+	}
+
+	private static boolean hasConstraint (Class<?> aClass) {
+		for (Class<?> c = aClass; c != null; c = c.getSuperclass()) {
+			if (c.isAnnotationPresent(TaskConstraint.class))
+				return true;
+		}
+		return false;
+	}
+
+	private void findRoots (String pkg, Array<Root> out) {
+		String path = pkg.replace('.', '/') + "/";
+		Enumeration<URL> urls;
+		try {
+			urls = loader.getResources(path);
+		} catch (IOException e) {
+			logger.error(TAG, "Failed to find package " + pkg, e);
+			return;
+		}
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			try {
+				Root root = createRoot(url, path);
+				if (root != null) {
+					out.add(root);
+				} else {
+					logger.log(TAG, "Unsupported location " + url);
+				}
+			} catch (URISyntaxException | IOException e) {
+				logger.error(TAG, "Failed to read " + url, e);
+			}
+		}
+	}
+
+	private static Root createRoot (URL url, String path) throws URISyntaxException, IOException {
+		Root root = new Root();
+		root.path = path;
+		if ("file".equals(url.getProtocol())) {
+			root.dir = new File(url.toURI());
+			// a class file may change without changing the time of the dir, so we need to look at all of them
+			long[] stats = new long[3];
+			fingerprint(root.dir, stats);
+			root.fingerprint = stats[0] + ":" + stats[1] + ":" + stats[2];
+			root.key = root.dir.getCanonicalPath();
+			return root;
+		}
+		if ("jar".equals(url.getProtocol())) {
+			String spec = url.getPath();
+			int sep = spec.indexOf("!/");
+			if (sep < 0)
+				return null;
+			root.jar = new File(new URL(spec.substring(0, sep)).toURI());
+			root.fingerprint = root.jar.length() + ":" + root.jar.lastModified();
+			root.key = root.jar.getCanonicalPath() + "!/" + path;
+			return root;
+		}
+		return null;
+	}
+
+	private static void fingerprint (File dir, long[] stats) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.isDirectory()) {
+				fingerprint(file, stats);
+			} else {
+				stats[0]++;
+				stats[1] += file.length();
+				stats[2] = Math.max(stats[2], file.lastModified());
+			}
+		}
+	}
+
+	private void loadIndex () {
+		if (index != null)
+			return;
+		index = new ObjectMap<>();
+		if (indexFile == null || !indexFile.exists())
+			return;
+		String[] lines = indexFile.readString("UTF-8").split("\n");
+		if (lines.length == 0 || !INDEX_HEADER.equals(lines[0].trim())) {
+			logger.log(TAG, "Ignoring index in unknown format " + indexFile.path());
+			return;
+		}
+		for (int i = 1; i < lines.length; i++) {
+			String[] parts = lines[i].split("\t", -1);
+			if (parts.length != 3)
+				continue;
+			IndexEntry entry = new IndexEntry();
+			entry.fingerprint = parts[1];
+			entry.classes = new Array<>();
+			if (parts[2].length() > 0)
+				entry.classes.addAll(parts[2].split(","));
+			index.put(parts[0], entry);
+		}
+	}
+
+	private void saveIndex () {
+		indexChanged = false;
+		if (indexFile == null)
+			return;
+		StringBuilder sb = new StringBuilder(INDEX_HEADER).append('\n');
+		for (ObjectMap.Entry<String, IndexEntry> e : index.entries()) {
+			sb.append(e.key).append('\t').append(e.value.fingerprint).append('\t');
+			Array<String> classes = e.value.classes;
+			for (int i = 0; i < classes.size; i++) {
+				if (i > 0) sb.append(',');
+				sb.append(classes.get(i));
+			}
+			sb.append('\n');
+		}
+		try {
+			indexFile.writeString(sb.toString(), false, "UTF-8");
+		} catch (RuntimeException e) {
+			logger.error(TAG, "Failed to save index " + indexFile.path(), e);
+		}
+	}
+
+	/**
+	 * Forget indexed results, next scan will scan everything
+	 */
+	public void clearIndex () {
+		index = new ObjectMap<>();
+		indexChanged = true;
+	}
+
+	/**
+	 * @param threads max number of threads used for scanning
+	 */
+	public void setThreads (int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @return number of roots scanned in last {@link #scan(String...)}
+	 */
+	public int getScannedCount () {
+		return scannedRoots;
+	}
+
+	/**
+	 * @return number of roots taken from the index in last {@link #scan(String...)}
+	 */
+	public int getIndexedCount () {
+		return indexedRoots;
+	}
+
+	public void setLogger (Logger logger) {
+		this.logger = logger != null ? logger : BehaviorTreeEditor.NULL_LOGGER;
+	}
+
+	private static class Root {
+		String key;
+		String fingerprint;
+		// package path, with trailing /
+		String path;
+		File dir;
+		File jar;
+	}
+
+	private static class IndexEntry {
+		String fingerprint;
+		Array<String> classes;
+	}
+}
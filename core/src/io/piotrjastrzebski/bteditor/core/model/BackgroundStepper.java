@@ -0,0 +1,275 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Steps a {@link ModelTree} on a worker thread, so slow tasks dont block the ui
+ * <p>
+ * Worker runs the {@link StepScheduler} at about 60 updates per second. Status events of the tree are passed to the ui
+ * thread through a {@link TaskEventQueue} and applied to the model in {@link #drain()}, which must be called every frame.
+ * Structural edits of the model wait for a safe point between scheduler updates, see {@link ModelTree#beginEdit()}.
+ * Events caused by the edits, like cancelled tasks, are applied right away on the ui thread.
+ * <p>
+ * Scheduler settings may be changed from the ui thread. Fast forward conditions are checked on the worker.
+ * {@link TaskProfiler} does not measure trees stepped in background.
+ *
+ * @param <E> type of the blackboard object
+ */
+public class BackgroundStepper<E> implements BehaviorTree.Listener<E> {
+	private final static long FRAME_NANOS = 1000000000L / 60;
+	private final static int CHILD_ADDED = -1;
+	private final static Task.Status[] STATUSES = Task.Status.values();
+
+	private final ModelTree<E> model;
+	private final StepScheduler scheduler;
+	private final TaskEventQueue<E> queue;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final AtomicInteger requestedSteps = new AtomicInteger();
+	// threads waiting for a safe point, worker lets them in before it takes the lock again
+	private final AtomicInteger editRequests = new AtomicInteger();
+	private volatile boolean running;
+	private volatile boolean paused;
+	private Thread worker;
+
+	// include children loaded by the tree, added to the model after drain so they can edit it
+	private final Array<Task<E>> addedTasks = new Array<>();
+	private final IntArray addedIndices = new IntArray();
+	// queue has a single consumer, events applied by the handler must not drain it again
+	private boolean draining;
+	private final TaskEventQueue.Handler<E> handler = new TaskEventQueue.Handler<E>() {
+		@Override public void event (Task<E> task, int tick, int from, int to) {
+			if (from == CHILD_ADDED) {
+				addedTasks.add(task);
+				addedIndices.add(to);
+			} else {
+				model.statusUpdated(task, STATUSES[from], STATUSES[to], tick);
+			}
+		}
+	};
+
+	public BackgroundStepper (ModelTree<E> model, StepScheduler scheduler) {
+		this(model, scheduler, 1 << 16);
+	}
+
+	/**
+	 * @param capacity max number of events waiting for {@link #drain()}, worker waits when the queue is full
+	 */
+	public BackgroundStepper (ModelTree<E> model, StepScheduler scheduler, int capacity) {
+		if (model == null)
+			throw new IllegalArgumentException("Model cannot be null!");
+		if (scheduler == null)
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		this.model = model;
+		this.scheduler = scheduler;
+		queue = new TaskEventQueue<>(capacity);
+	}
+
+	/**
+	 * Start stepping on a new worker thread, model is no longer stepped on the calling thread
+	 */
+	public void start () {
+		if (running)
+			return;
+		// worker is not running yet, no need to wait for a safe point
+		model.setStepper(this);
+		running = true;
+		worker = new Thread(new Runnable() {
+			@Override public void run () {
+				loop();
+			}
+		}, "BackgroundStepper");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stop the worker and wait for it to finish, pending events are applied
+	 */
+	public void stop () {
+		if (!running)
+			return;
+		running = false;
+		LockSupport.unpark(worker);
+		boolean interrupted = false;
+		while (worker.isAlive()) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		worker = null;
+		drain();
+		model.setStepper(null);
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void loop () {
+		long last = TimeUtils.nanoTime();
+		while (running) {
+			long start = TimeUtils.nanoTime();
+			float delta = (start - last) / 1000000000f;
+			last = start;
+			// lock is not fair, without this an update longer than a frame would keep the ui out for good
+			while (editRequests.get() > 0 && running)
+				LockSupport.parkNanos(100000);
+			lock.lock();
+			try {
+				update(delta);
+			} finally {
+				lock.unlock();
+			}
+			long left = FRAME_NANOS - (TimeUtils.nanoTime() - start);
+			if (left > 0 && running)
+				LockSupport.parkNanos(left);
+		}
+	}
+
+	private void update (float delta) {
+		// invalid trees cant be stepped
+		if (model.getRootNode() == null || !model.isValid()) {
+			requestedSteps.set(0);
+			scheduler.idle();
+			return;
+		}
+		int requested = requestedSteps.getAndSet(0);
+		for (int i = 0; i < requested && running; i++) {
+			model.stepNow();
+		}
+		// fast forward works while paused, same as on the ui thread
+		if (!paused || scheduler.isFastForwarding()) {
+			scheduler.update(delta, model);
+		} else {
+			scheduler.idle();
+		}
+	}
+
+	boolean isWorker () {
+		return Thread.currentThread() == worker;
+	}
+
+	/**
+	 * Step once on the worker, even if paused
+	 */
+	void requestStep () {
+		requestedSteps.incrementAndGet();
+		LockSupport.unpark(worker);
+	}
+
+	/**
+	 * Wait for a safe point between steps, events are drained while waiting so the worker cant get stuck on full queue
+	 * <p>
+	 * Worker waits for us at the end of current update, so this takes at most one update, ie a single slow step.
+	 */
+	void lock () {
+		if (lock.isHeldByCurrentThread() || isWorker()) {
+			lock.lock();
+			return;
+		}
+		editRequests.incrementAndGet();
+		try {
+			while (!lock.tryLock()) {
+				drain();
+				LockSupport.parkNanos(100000);
+			}
+		} finally {
+			editRequests.decrementAndGet();
+		}
+	}
+
+	void unlock () {
+		// stepper may have been started while editing
+		if (lock.isHeldByCurrentThread())
+			lock.unlock();
+	}
+
+	/**
+	 * Apply events from the worker to the model, call every frame on the ui thread
+	 *
+	 * @return number of events applied
+	 */
+	public int drain () {
+		if (draining)
+			return 0;
+		int count;
+		draining = true;
+		try {
+			count = queue.drain(handler);
+		} finally {
+			draining = false;
+		}
+		while (addedTasks.size > 0) {
+			Task<E> task = addedTasks.removeIndex(0);
+			int index = addedIndices.removeIndex(0);
+			model.childAdded(task, index);
+		}
+		return count;
+	}
+
+	@Override public void statusUpdated (Task<E> task, Task.Status previousStatus) {
+		// here and not in drain, so the scheduler stops at the step that hit
+		model.checkBreakpoints(task, task.getStatus(), model.getTick());
+		if (!isWorker()) {
+			// edit on the ui thread cancelled running tasks, queue is for the worker only and we would wait on ourselves
+			drain();
+			model.statusUpdated(task, previousStatus, task.getStatus(), model.getTick());
+			return;
+		}
+		int from = previousStatus != null ? previousStatus.ordinal() : Task.Status.FRESH.ordinal();
+		offer(task, model.getTick(), from, task.getStatus().ordinal());
+	}
+
+	@Override public void childAdded (Task<E> task, int index) {
+		if (!isWorker()) {
+			drain();
+			model.childAdded(task, index);
+			return;
+		}
+		offer(task, model.getTick(), CHILD_ADDED, index);
+	}
+
+	private void offer (Task<E> task, int tick, int from, int to) {
+		while (!queue.offer(task, tick, from, to)) {
+			// ui is behind, wait for it, unless we are stopping
+			if (!running)
+				return;
+			LockSupport.parkNanos(100000);
+		}
+	}
+
+	public void setPaused (boolean paused) {
+		this.paused = paused;
+	}
+
+	public boolean isPaused () {
+		return paused;
+	}
+
+	public boolean isRunning () {
+		return running;
+	}
+
+	/**
+	 * @return number of events waiting for {@link #drain()}
+	 */
+	public int getPendingEvents () {
+		return queue.size();
+	}
+
+	@Override public String toString () {
+		return "BackgroundStepper{" +
+			"running=" + running +
+			", paused=" + paused +
+			", pending=" + queue.size() +
+			'}';
+	}
+}
@@ -0,0 +1,119 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+
+/**
+ * Pauses stepping of a {@link ModelTree} when a task enters a status, see {@link ModelTree#addBreakpoint(Breakpoint)}
+ * <p>
+ * Breakpoint triggers on status updates of its task that match the status, if there is one, and the condition, if
+ * there is one. Only every n-th matching update hits, see {@link #setHitCount(int)}.
+ * <p>
+ * When stepping in background the condition is checked on the worker thread.
+ *
+ * @param <E> type of the blackboard object
+ */
+public class Breakpoint<E> {
+	private final ModelTask<E> task;
+	// tasks are pooled, id stays the same when it is removed and brought back by undo
+	final int id;
+	private final Task.Status status;
+	// set on the ui thread, checked by the thread that steps the tree
+	private volatile Condition<E> condition;
+	private volatile int hitCount = 1;
+	private volatile int hits;
+	private volatile boolean enabled = true;
+
+	/**
+	 * @param task   task to watch, must be in a model
+	 * @param status status to break on, null for any status update
+	 */
+	public Breakpoint (ModelTask<E> task, Task.Status status) {
+		if (task == null)
+			throw new IllegalArgumentException("Task cannot be null!");
+		this.task = task;
+		id = task.getId();
+		this.status = status;
+	}
+
+	/**
+	 * @return true if the breakpoint hits
+	 */
+	boolean check (Task.Status status, E blackboard) {
+		if (!enabled)
+			return false;
+		if (this.status != null && this.status != status)
+			return false;
+		if (condition != null && !condition.isMet(blackboard))
+			return false;
+		if (++hits < hitCount)
+			return false;
+		hits = 0;
+		return true;
+	}
+
+	public ModelTask<E> getTask () {
+		return task;
+	}
+
+	/**
+	 * @return status to break on, null for any
+	 */
+	public Task.Status getStatus () {
+		return status;
+	}
+
+	/**
+	 * @param condition checked with the blackboard of the tree when the status matches, null to always break
+	 */
+	public void setCondition (Condition<E> condition) {
+		this.condition = condition;
+	}
+
+	public Condition<E> getCondition () {
+		return condition;
+	}
+
+	/**
+	 * @param hitCount number of matching status updates before the breakpoint hits, counter starts again after a hit
+	 */
+	public void setHitCount (int hitCount) {
+		if (hitCount < 1)
+			throw new IllegalArgumentException("Hit count must be >= 1, is " + hitCount);
+		this.hitCount = hitCount;
+	}
+
+	public int getHitCount () {
+		return hitCount;
+	}
+
+	/**
+	 * @return matching status updates since last hit
+	 */
+	public int getHits () {
+		return hits;
+	}
+
+	public void setEnabled (boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled () {
+		return enabled;
+	}
+
+	@Override public String toString () {
+		return "Breakpoint{" +
+			"task=" + task.getName() +
+			", status=" + status +
+			", hits=" + hits + "/" + hitCount +
+			", condition=" + (condition != null) +
+			'}';
+	}
+
+	public interface Condition<E> {
+		/**
+		 * @return true to break
+		 */
+		boolean isMet (E blackboard);
+	}
+}
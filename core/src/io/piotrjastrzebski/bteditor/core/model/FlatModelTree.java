@@ -0,0 +1,540 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+/**
+ * Compact model of a tree, for trees too large for {@link ModelTree}
+ * <p>
+ * Nodes are ids into primitive arrays of parent, first child, next sibling and type, there are no per node objects
+ * besides wrapped {@link Task}s. Traversals are loops over the arrays that follow the links, no recursion.
+ * {@link Node} is a thin view of single node with {@link ModelTask} like api.
+ * <p>
+ * Validation follows {@link ModelTask}, child counts come from {@link TaskMetadata} and subtrees of includes are
+ * checked by {@link SubtreePathResolver}, the tree is validated again when a check finishes.
+ */
+public class FlatModelTree<E> {
+	public final static int NONE = -1;
+
+	private final static ModelTaskType[] TYPES = ModelTaskType.values();
+	private final static byte VALID = 1;
+	private final static byte USED = 1 << 1;
+
+	private int[] parent;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] childCount;
+	private byte[] type;
+	private byte[] flags;
+	private Task<E>[] tasks;
+	// ids are reused, freed nodes are linked through nextSibling
+	private int freeHead = NONE;
+	// high water mark of used ids
+	private int capacityUsed;
+	private int size;
+	private int root = NONE;
+	private ObjectIntMap<Task<E>> taskToId = new ObjectIntMap<>();
+	private IntMap<String> comments = new IntMap<>();
+	private SubtreePathResolver pathResolver;
+	private SubtreePathResolver.Listener pathListener = new SubtreePathResolver.Listener() {
+		@Override public void resolved (String path, boolean exists) {
+			if (includes > 0)
+				validate();
+		}
+	};
+	// number of include nodes, only they care about resolved paths
+	private int includes;
+
+	public FlatModelTree () {
+		this(64);
+	}
+
+	public FlatModelTree (int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate (int capacity) {
+		int[] parent = new int[capacity];
+		int[] firstChild = new int[capacity];
+		int[] nextSibling = new int[capacity];
+		int[] childCount = new int[capacity];
+		byte[] type = new byte[capacity];
+		byte[] flags = new byte[capacity];
+		Task<E>[] tasks = (Task<E>[])new Task<?>[capacity];
+		if (this.parent != null) {
+			int count = capacityUsed;
+			System.arraycopy(this.parent, 0, parent, 0, count);
+			System.arraycopy(this.firstChild, 0, firstChild, 0, count);
+			System.arraycopy(this.nextSibling, 0, nextSibling, 0, count);
+			System.arraycopy(this.childCount, 0, childCount, 0, count);
+			System.arraycopy(this.type, 0, type, 0, count);
+			System.arraycopy(this.flags, 0, flags, 0, count);
+			System.arraycopy(this.tasks, 0, tasks, 0, count);
+		}
+		this.parent = parent;
+		this.firstChild = firstChild;
+		this.nextSibling = nextSibling;
+		this.childCount = childCount;
+		this.type = type;
+		this.flags = flags;
+		this.tasks = tasks;
+	}
+
+	/**
+	 * Create nodes for the task and all of its children, replaces current content
+	 *
+	 * @return id of the root node
+	 */
+	public int init (Task<E> task) {
+		if (task == null)
+			throw new IllegalArgumentException("Task cannot be null");
+		reset();
+		root = obtain(task);
+		// walk the Task tree without recursion, child tasks are added in order
+		int id = root;
+		while (id != NONE) {
+			Task<E> current = tasks[id];
+			if (childCount[id] < current.getChildCount()) {
+				id = add(id, current.getChild(childCount[id]));
+			} else {
+				id = parent[id];
+			}
+		}
+		validate();
+		return root;
+	}
+
+	private int obtain (Task<E> task) {
+		int id;
+		if (freeHead != NONE) {
+			id = freeHead;
+			freeHead = nextSibling[id];
+		} else {
+			if (capacityUsed == parent.length)
+				allocate(parent.length * 2);
+			id = capacityUsed++;
+		}
+		parent[id] = NONE;
+		firstChild[id] = NONE;
+		nextSibling[id] = NONE;
+		childCount[id] = 0;
+		type[id] = (byte)ModelTaskType.valueFor(task).ordinal();
+		flags[id] = USED;
+		tasks[id] = task;
+		taskToId.put(task, id);
+		if (task instanceof Include)
+			includes++;
+		size++;
+		return id;
+	}
+
+	/**
+	 * Add new node for the task as last child of the target
+	 *
+	 * @return id of the new node
+	 */
+	public int add (int target, Task<E> task) {
+		return insert(target, childCount[checkUsed(target)], task);
+	}
+
+	/**
+	 * Insert new node for the task as child of the target at given index
+	 *
+	 * @return id of the new node
+	 */
+	public int insert (int target, int at, Task<E> task) {
+		checkUsed(target);
+		if (at < 0 || at > childCount[target])
+			throw new IndexOutOfBoundsException("at can't be < 0 or > " + childCount[target] + ", is " + at);
+		int id = obtain(task);
+		parent[id] = target;
+		if (at == 0) {
+			nextSibling[id] = firstChild[target];
+			firstChild[target] = id;
+		} else {
+			int prev = getChild(target, at - 1);
+			nextSibling[id] = nextSibling[prev];
+			nextSibling[prev] = id;
+		}
+		childCount[target]++;
+		return id;
+	}
+
+	/**
+	 * Remove the node and all of its children, removing root clears the tree
+	 */
+	public void remove (int id) {
+		checkUsed(id);
+		int from = parent[id];
+		if (from != NONE) {
+			int prev = firstChild[from];
+			if (prev == id) {
+				firstChild[from] = nextSibling[id];
+			} else {
+				while (nextSibling[prev] != id) {
+					prev = nextSibling[prev];
+				}
+				nextSibling[prev] = nextSibling[id];
+			}
+			childCount[from]--;
+		} else if (id == root) {
+			root = NONE;
+		}
+		// free the subtree in post order, ids are pushed to free list after their children
+		int current = id;
+		while (true) {
+			while (firstChild[current] != NONE) {
+				current = firstChild[current];
+			}
+			int next = nextSibling[current];
+			int up = parent[current];
+			if (up != NONE && firstChild[up] == current) {
+				firstChild[up] = next;
+			}
+			boolean last = current == id;
+			free(current);
+			if (last)
+				break;
+			current = next != NONE ? next : up;
+		}
+	}
+
+	private void free (int id) {
+		if (tasks[id] instanceof Include)
+			includes--;
+		taskToId.remove(tasks[id], NONE);
+		comments.remove(id);
+		tasks[id] = null;
+		flags[id] = 0;
+		parent[id] = NONE;
+		firstChild[id] = NONE;
+		childCount[id] = 0;
+		nextSibling[id] = freeHead;
+		freeHead = id;
+		size--;
+	}
+
+	/**
+	 * @return id of the node that wraps the task or {@link #NONE}
+	 */
+	public int find (Task<E> task) {
+		return taskToId.get(task, NONE);
+	}
+
+	/**
+	 * Validate whole tree in a single post order pass
+	 *
+	 * @return if the tree is valid
+	 */
+	public boolean validate () {
+		if (root == NONE)
+			return false;
+		int id = root;
+		// descend to first leaf
+		while (firstChild[id] != NONE) {
+			id = firstChild[id];
+		}
+		while (true) {
+			// all children are already validated
+			boolean valid = isSelfValid(id);
+			for (int child = firstChild[id]; valid && child != NONE; child = nextSibling[child]) {
+				valid = (flags[child] & VALID) != 0;
+			}
+			if (valid) {
+				flags[id] |= VALID;
+			} else {
+				flags[id] &= ~VALID;
+			}
+			if (id == root)
+				break;
+			if (nextSibling[id] != NONE) {
+				id = nextSibling[id];
+				while (firstChild[id] != NONE) {
+					id = firstChild[id];
+				}
+			} else {
+				id = parent[id];
+			}
+		}
+		return (flags[root] & VALID) != 0;
+	}
+
+	private boolean isSelfValid (int id) {
+		Task<E> task = tasks[id];
+		TaskMetadata metadata = TaskLibrary.getMetadata(task.getClass());
+		if (!metadata.isChildCountValid(childCount[id]))
+			return false;
+		for (TaskMetadata.Attribute attribute : metadata.getRequired()) {
+			try {
+				if (attribute.get(task) == null)
+					return false;
+			} catch (ReflectionException e) {
+				return false;
+			}
+		}
+		if (task instanceof Include) {
+			// checked in the background, invalid until we know the file is there
+			return getPathResolver().check(((Include)task).subtree) == SubtreePathResolver.EXISTS;
+		}
+		return true;
+	}
+
+	/**
+	 * Apply results of background checks, call every frame on the ui thread
+	 */
+	public void update () {
+		getPathResolver().update();
+	}
+
+	public SubtreePathResolver getPathResolver () {
+		if (pathResolver == null)
+			setPathResolver(new SubtreePathResolver());
+		return pathResolver;
+	}
+
+	/**
+	 * Set resolver used to check subtrees of includes, can be shared between models
+	 */
+	public void setPathResolver (SubtreePathResolver pathResolver) {
+		if (this.pathResolver != null)
+			this.pathResolver.removeListener(pathListener);
+		this.pathResolver = pathResolver;
+		pathResolver.addListener(pathListener);
+	}
+
+	/**
+	 * Visit all nodes in depth first pre order, same order in which they would be serialized
+	 *
+	 * @param visitor called for each node with its depth, root is at depth 0
+	 */
+	public void visit (Visitor<E> visitor) {
+		if (root == NONE)
+			return;
+		int id = root;
+		int depth = 0;
+		while (true) {
+			visitor.visit(this, id, depth);
+			if (firstChild[id] != NONE) {
+				id = firstChild[id];
+				depth++;
+				continue;
+			}
+			// climb until there is a sibling to go to
+			while (id != root && nextSibling[id] == NONE) {
+				id = parent[id];
+				depth--;
+			}
+			if (id == root)
+				return;
+			id = nextSibling[id];
+		}
+	}
+
+	public interface Visitor<E> {
+		void visit (FlatModelTree<E> tree, int id, int depth);
+	}
+
+	private int checkUsed (int id) {
+		if (id < 0 || id >= capacityUsed || (flags[id] & USED) == 0)
+			throw new IllegalArgumentException("Node " + id + " is not in the tree");
+		return id;
+	}
+
+	public int getRoot () {
+		return root;
+	}
+
+	public int getParent (int id) {
+		return parent[id];
+	}
+
+	public int getFirstChild (int id) {
+		return firstChild[id];
+	}
+
+	public int getNextSibling (int id) {
+		return nextSibling[id];
+	}
+
+	public int getChildCount (int id) {
+		return childCount[id];
+	}
+
+	public int getChild (int id, int index) {
+		if (index < 0 || index >= childCount[id])
+			throw new IndexOutOfBoundsException("index can't be < 0 or >= " + childCount[id] + ", is " + index);
+		int child = firstChild[id];
+		for (int i = 0; i < index; i++) {
+			child = nextSibling[child];
+		}
+		return child;
+	}
+
+	public int getIndexInParent (int id) {
+		int up = parent[id];
+		if (up == NONE)
+			return -1;
+		int index = 0;
+		for (int child = firstChild[up]; child != id; child = nextSibling[child]) {
+			index++;
+		}
+		return index;
+	}
+
+	public ModelTaskType getType (int id) {
+		return TYPES[type[id]];
+	}
+
+	public Task<E> getTask (int id) {
+		return tasks[id];
+	}
+
+	public boolean isValid (int id) {
+		return (flags[id] & VALID) != 0;
+	}
+
+	public void setComment (int id, String comment) {
+		if (comment == null || comment.length() == 0) {
+			comments.remove(id);
+		} else {
+			comments.put(id, comment);
+		}
+	}
+
+	public String getComment (int id) {
+		return comments.get(id);
+	}
+
+	/**
+	 * @return number of nodes in the tree
+	 */
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return thin view of the node, cheap to create, not valid after the node is removed
+	 */
+	public Node<E> getNode (int id) {
+		return new Node<>(this, checkUsed(id));
+	}
+
+	public void reset () {
+		for (int i = 0; i < capacityUsed; i++) {
+			tasks[i] = null;
+			flags[i] = 0;
+		}
+		capacityUsed = 0;
+		freeHead = NONE;
+		size = 0;
+		includes = 0;
+		root = NONE;
+		taskToId.clear();
+		comments.clear();
+	}
+
+	/**
+	 * View of single node in {@link FlatModelTree}, with {@link ModelTask} like api
+	 */
+	public static class Node<E> {
+		private final FlatModelTree<E> tree;
+		private final int id;
+
+		private Node (FlatModelTree<E> tree, int id) {
+			this.tree = tree;
+			this.id = id;
+		}
+
+		public int getId () {
+			return id;
+		}
+
+		public Task<E> getTask () {
+			return tree.getTask(id);
+		}
+
+		public FlatModelTree<E> getModel () {
+			return tree;
+		}
+
+		public ModelTaskType getType () {
+			return tree.getType(id);
+		}
+
+		public Node<E> getParent () {
+			int parent = tree.getParent(id);
+			return parent == NONE ? null : new Node<>(tree, parent);
+		}
+
+		public int getChildCount () {
+			return tree.getChildCount(id);
+		}
+
+		public Node<E> getChild (int index) {
+			return new Node<>(tree, tree.getChild(id, index));
+		}
+
+		public int getIndexInParent () {
+			return tree.getIndexInParent(id);
+		}
+
+		public boolean isValid () {
+			return tree.isValid(id);
+		}
+
+		/**
+		 * Validate the tree, it is validated in a single pass as a whole
+		 *
+		 * @return if this node and all of its children are valid
+		 */
+		public boolean validate () {
+			tree.validate();
+			return isValid();
+		}
+
+		/**
+		 * @return node of the task if it is this node or one of its children, null otherwise
+		 */
+		public Node<E> find (Task<E> task) {
+			int found = tree.find(task);
+			for (int up = found; up != NONE; up = tree.getParent(up)) {
+				if (up == id)
+					return new Node<>(tree, found);
+			}
+			return null;
+		}
+
+		public String getName () {
+			return tree.getTask(id).getClass().getSimpleName();
+		}
+
+		public String getComment () {
+			return tree.getComment(id);
+		}
+
+		public boolean hasComment () {
+			return tree.getComment(id) != null;
+		}
+
+		@Override public boolean equals (Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			Node<?> node = (Node<?>)o;
+			return id == node.id && tree == node.tree;
+		}
+
+		@Override public int hashCode () {
+			return id;
+		}
+
+		@Override public String toString () {
+			return "Node{" + getName() + ", id=" + id + "}";
+		}
+	}
+}
@@ -1,15 +1,10 @@
 package io.piotrjastrzebski.bteditor.core.model;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.btree.Task;
-import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
 import com.badlogic.gdx.ai.btree.decorator.Include;
-import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.reflect.Annotation;
-import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.Field;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 
@@ -21,27 +16,86 @@ public class ModelTask<E> implements Pool.Poolable {
 	private ModelTaskType type;
 	private Array<ModelTask<E>> children;
 	private boolean isValid;
+	// validation state, only dirty tasks and their parents are validated
+	private boolean dirty = true;
+	private boolean pendingValidation = true;
+	private boolean selfValid;
+	private int invalidChildren;
+	private Array<ModelTask<E>> dirtyChildren;
 	private ModelTree<E> model;
 	private ModelTask<E> parent;
 	private ValidChangeListener<E> changeListener;
 	private String comment;
+	// set by the model when this task is returned to the pool
+	boolean freed;
+	// number of undo history operations that reference this task
+	int historyRefs;
+	// structural hash of this subtree, recomputed when needed after a change
+	private long hash;
+	boolean hashDirty = true;
+	// in lazy model children of wrapped task are wrapped when needed
+	private boolean materialized = true;
+	// assigned by the model when indexed, 0 if not indexed
+	int id;
 
 	public ModelTask (ModelTree<E> model) {
 		this.model = model;
 		children = new Array<>();
+		dirtyChildren = new Array<>(false, 4);
 	}
 
 	public void init (Task<E> task) {
+		checkFreed();
 		if (task == null)
 			throw new IllegalArgumentException("Task cannot be null");
 		if (this.task != null)
 			reset();
 		this.task = task;
 		type = ModelTaskType.valueFor(task);
+		metadata = TaskLibrary.getMetadata(task.getClass());
+		comment = model.getComment(task);
+		materialized = !model.isLazy() || task.getChildCount() == 0;
+		if (materialized) {
+			for (int i = 0; i < task.getChildCount(); i++) {
+				addChild(task.getChild(i));
+			}
+		}
+		validate();
+	}
+
+	/**
+	 * Wrap children of the wrapped {@link Task} if we didn't yet, in lazy model they are not wrapped by {@link #init(Task)}
+	 *
+	 * Children of not materialized task are assumed to be valid
+	 */
+	public void materialize () {
+		if (materialized)
+			return;
+		materialized = true;
 		for (int i = 0; i < task.getChildCount(); i++) {
-			addChild(task.getChild(i));
+			ModelTask<E> child = model.obtain();
+			child.init(task.getChild(i));
+			child.parent = this;
+			children.add(child);
+			if (!child.isValid)
+				invalidChildren++;
+			model.attached(this, child);
 		}
+		// same tree as before, hash stays, validity may not
+		markPending();
 		validate();
+		model.materialized(this);
+	}
+
+	public boolean isMaterialized () {
+		return materialized;
+	}
+
+	/**
+	 * @return if this task has children, does not materialize them
+	 */
+	public boolean hasChildren () {
+		return materialized ? children.size > 0 : task.getChildCount() > 0;
 	}
 
 	public int addChild (Task<E> task) {
@@ -51,9 +105,13 @@ public class ModelTask<E> implements Pool.Poolable {
 	}
 
 	public int addChild (ModelTask<E> child) {
+		checkFreed();
+		materialize();
 		child.parent = this;
 		children.add(child);
-		model.addTaskAction(ModelTaskAction.add(task, child.getTask()));
+		childAttached(child);
+		model.attached(this, child);
+		model.record(this, child.getTask());
 		validate();
 		return children.size - 1;
 	}
@@ -65,9 +123,13 @@ public class ModelTask<E> implements Pool.Poolable {
 	}
 
 	public int insertChild (int index, ModelTask<E> child) {
+		checkFreed();
+		materialize();
 		child.parent = this;
 		children.insert(index, child);
-		model.addTaskAction(ModelTaskAction.insert(task, child.getTask(), index));
+		childAttached(child);
+		model.attached(this, child);
+		model.record(this, child.getTask());
 		validate();
 		return children.size - 1;
 	}
@@ -77,78 +139,168 @@ public class ModelTask<E> implements Pool.Poolable {
 	}
 
 	public ModelTask<E> removeChild (ModelTask<E> child) {
-		model.addTaskAction(ModelTaskAction.remove(task, child.getTask()));
-		children.removeValue(child, true);
+		checkFreed();
+		materialize();
+		model.record(this, child.getTask());
+		if (children.removeValue(child, true))
+			childDetached(child);
+		model.detached(child);
 		child.parent = null;
 		validate();
 		return child;
 	}
 
-	private String lastSubtree;
+	private void childAttached (ModelTask<E> child) {
+		if (!child.isValid)
+			invalidChildren++;
+		if (child.pendingValidation)
+			dirtyChildren.add(child);
+		// child count changed, we need to recheck ourselves
+		markDirty();
+	}
+
+	private void childDetached (ModelTask<E> child) {
+		if (!child.isValid)
+			invalidChildren--;
+		if (child.pendingValidation)
+			dirtyChildren.removeValue(child, true);
+		markDirty();
+	}
+
+	/**
+	 * Mark this task as requiring validation, call it when attributes of wrapped {@link Task} change
+	 *
+	 * Only this task and its parents will be rechecked on next {@link #validate()}
+	 */
+	public void markDirty () {
+		dirty = true;
+		markPending();
+		invalidateHash();
+	}
+
+	private void invalidateHash () {
+		// all the way up, in lazy model materialized children are dirty below a parent that is not
+		ModelTask<E> task = this;
+		while (task != null) {
+			task.hashDirty = true;
+			task = task.parent;
+		}
+	}
+
+	/**
+	 * Structural hash of this subtree, covers task class, attribute values, comment and children
+	 *
+	 * Equal hashes mean equal subtrees, only tasks changed since last call and their parents are recomputed
+	 */
+	public long getHash () {
+		if (hashDirty) {
+			hash = ModelTaskHash.hash(this);
+			hashDirty = false;
+		}
+		return hash;
+	}
+
+	/**
+	 * Call when attributes of wrapped {@link Task} were changed, task will be validated and model listeners notified
+	 */
+	public void attributesChanged () {
+		markDirty();
+		model.attributeChanged(this);
+	}
+
+	/**
+	 * Call when attribute of wrapped {@link Task} was changed by the user, change will be recorded in undo history
+	 *
+	 * @param field   changed field
+	 * @param before  value before the change
+	 * @param after   value after the change
+	 */
+	public void attributeChanged (Field field, Object before, Object after) {
+		model.recordAttribute(this, field, before, after);
+		attributesChanged();
+	}
+
+	private void markPending () {
+		// if we are pending, so are our parents
+		if (pendingValidation)
+			return;
+		pendingValidation = true;
+		if (parent != null) {
+			parent.dirtyChildren.add(this);
+			parent.markPending();
+		}
+	}
+
+	/**
+	 * @return if this task or any of its children need to be validated
+	 */
+	public boolean isPendingValidation () {
+		return pendingValidation;
+	}
+
+	// include subtree is being checked, task is invalid until the check is done
+	private boolean resolving;
+	/**
+	 * Validate this task and its children, only tasks marked as dirty, and their parents are checked
+	 *
+	 * @return if this task and all of its children are valid
+	 */
 	public boolean validate () {
+		if (!pendingValidation)
+			return isValid;
+		if (dirty) {
+			dirty = false;
+			selfValid = isSelfValid();
+		}
+		// children will update invalidChildren if they change validity
+		for (int i = 0; i < dirtyChildren.size; i++) {
+			dirtyChildren.get(i).validate();
+		}
+		dirtyChildren.clear();
+		pendingValidation = false;
+		setValid(selfValid && invalidChildren == 0);
+		return isValid;
+	}
+
+	private boolean isSelfValid () {
 		// check if we have correct amount of children
 		boolean valid = isTaskValid();
 		// include is magic, need some custom handling
 		if (task instanceof Include) {
 			String subtree = ((Include)task).subtree;
+			resolving = false;
 			if (subtree == null || subtree.length() == 0) {
 				valid = false;
 			} else {
-				if (!subtree.equals(lastSubtree)) {
-					lastSubtree = subtree;
-					// TODO this is dumb
-					FileHandle fh = Gdx.files.internal(subtree);
-					valid = fh.exists() && !fh.isDirectory();
-//					if (valid) {
-//						task = new Include<>(subtree, true);
-//						init(task);
-//						model.requestRebuild();
-//					}
-				}
-			}
-		}
-		if (valid) {
-			for (ModelTask<E> child : children) {
-				if (!child.validate()) {
-					valid = false;
-				}
+				// file is checked in the background, model will revalidate us when its done
+				model.watchInclude(this);
+				int state = model.getPathResolver().check(subtree);
+				resolving = state == SubtreePathResolver.PENDING;
+				valid &= state == SubtreePathResolver.EXISTS;
 			}
 		}
-		setValid(valid);
-		return isValid;
+		return valid;
 	}
 
-	private Array<Field> taskFields = new Array<>(8);
+	private TaskMetadata metadata;
 	private boolean allFieldsSet = false;
 	private boolean isTaskValid() {
-		if (!type.isValid(children.size)) return false;
+		if (!metadata.isChildCountValid(materialized ? children.size : task.getChildCount())) return false;
 		// it is impossible to set fields to null in the editor,
 		// so we need to check this until they are all set to something
 		if (allFieldsSet) return true;
-		if (taskFields.size == 0) {
-			// find all field with required attributes
-			Field[] fields = ClassReflection.getFields(task.getClass());
-			for (Field f : fields) {
-				Annotation a = f.getDeclaredAnnotation(TaskAttribute.class);
-				if (a == null)
-					continue;
-				TaskAttribute annotation = a.getAnnotation(TaskAttribute.class);
-				if (annotation.required())
-					taskFields.add(f);
-			}
-		}
-		for (Field field : taskFields) {
-			if (!isFieldValid(task, field))
+		for (TaskMetadata.Attribute attribute : metadata.getRequired()) {
+			if (!isFieldValid(task, attribute))
 				return false;
 		}
 		allFieldsSet = true;
 		return true;
 	}
 
-	private boolean isFieldValid (Task<E> task, Field f) {
+	private boolean isFieldValid (Task<E> task, TaskMetadata.Attribute attribute) {
 		try {
 			// not valid if field is not set, defaults work for primitives
-			if (f.get(task) != null) return true;
+			if (attribute.get(task) != null) return true;
 		} catch (ReflectionException e) {
 			e.printStackTrace();
 		}
@@ -158,6 +310,10 @@ public class ModelTask<E> implements Pool.Poolable {
 	public void setValid (boolean newValid) {
 		if (isValid != newValid) {
 			isValid = newValid;
+			if (parent != null) {
+				parent.invalidChildren += isValid ? -1 : 1;
+				parent.markPending();
+			}
 			// notify that valid status changed
 			if (changeListener != null)
 				changeListener.validChanged(this, isValid);
@@ -187,17 +343,36 @@ public class ModelTask<E> implements Pool.Poolable {
 	}
 
 	@Override public void reset () {
-		// todo free pooled
+		model.unindex(this);
+		model.forget(this);
 		for (ModelTask<E> child : children) {
 			model.free(child);
 		}
 		children.clear();
-		taskFields.clear();
+		dirtyChildren.clear();
+		invalidChildren = 0;
+		dirty = true;
+		pendingValidation = true;
+		selfValid = false;
+		if (resolving || type == ModelTaskType.INCLUDE)
+			model.unwatchInclude(this);
+		resolving = false;
+		metadata = null;
 		allFieldsSet = false;
 		task = null;
 		type = null;
 		isValid = false;
 		parent = null;
+		comment = null;
+		hash = 0;
+		hashDirty = true;
+		materialized = true;
+		id = 0;
+	}
+
+	private void checkFreed () {
+		if (freed && model.isDebugPool())
+			throw new IllegalStateException("Using freed ModelTask " + this);
 	}
 
 	@Override public String toString () {
@@ -205,7 +380,7 @@ public class ModelTask<E> implements Pool.Poolable {
 			"task=" + (task != null ? task.getClass().getSimpleName() : "null") +
 			", type=" + type +
 			", valid=" + isValid +
-			", children=" + getChildCount() +
+			", children=" + children.size +
 			'}';
 	}
 
@@ -218,21 +393,45 @@ public class ModelTask<E> implements Pool.Poolable {
 	}
 
 	public Task<E> getTask () {
+		checkFreed();
 		return task;
 	}
 
+	/**
+	 * @return id unique within the model, stays the same while this task is in the model, 0 if it is not
+	 */
+	public int getId () {
+		return id;
+	}
+
 	public int getChildCount () {
+		materialize();
 		return children.size;
 	}
 
 	public ModelTask<E> getChild (int i) {
+		materialize();
 		return children.get(i);
 	}
 
+	/**
+	 * @return children that are wrapped already, without materializing new ones
+	 */
+	Array<ModelTask<E>> getMaterializedChildren () {
+		return children;
+	}
+
 	public boolean isValid () {
 		return isValid;
 	}
 
+	/**
+	 * @return if validity is not known yet, as subtree of include is still being checked
+	 */
+	public boolean isResolving () {
+		return resolving;
+	}
+
 	public ModelTaskType getType () {
 		return type;
 	}
@@ -241,13 +440,17 @@ public class ModelTask<E> implements Pool.Poolable {
 		return parent;
 	}
 
+	public ModelTree<E> getModel () {
+		return model;
+	}
+
 	protected void setChangeListener (ValidChangeListener<E> listener) {
 		this.changeListener = listener;
 	}
 
 	public ModelTask<E> createClone () {
 		ModelTask<E> obtain = (ModelTask<E>)model.obtain();
-		obtain.init(task.cloneTask());
+		obtain.init(TaskCopier.copyTask(task));
 		obtain.setComment(getComment());
 		return obtain;
 	}
@@ -262,6 +465,7 @@ public class ModelTask<E> implements Pool.Poolable {
 
 	public void setComment (String comment) {
 		this.comment = comment;
+		invalidateHash();
 	}
 
 	protected interface ValidChangeListener<E> {
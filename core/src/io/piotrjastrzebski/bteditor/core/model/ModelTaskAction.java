@@ -4,6 +4,7 @@ import com.badlogic.gdx.ai.btree.BranchTask;
 import com.badlogic.gdx.ai.btree.Decorator;
 import com.badlogic.gdx.ai.btree.Task;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.Field;
@@ -24,6 +25,32 @@ abstract class ModelTaskAction implements Pool.Poolable {
 		}
 	}
 
+	// resolved once, looking them up on every execute is slow for large trees
+	private final static Field branchChildren = accessibleField(BranchTask.class, "children");
+	private final static Field decoratorChild = accessibleField(Decorator.class, "child");
+
+	private static Field accessibleField (Class<?> type, String name) {
+		try {
+			Field field = ClassReflection.getDeclaredField(type, name);
+			field.setAccessible(true);
+			return field;
+		} catch (ReflectionException e) {
+			throw new GdxRuntimeException("Failed to access " + type.getSimpleName() + "." + name, e);
+		}
+	}
+
+	protected static Array<?> getChildren (Task<?> target) throws ReflectionException {
+		return (Array<?>)branchChildren.get(target);
+	}
+
+	protected static Task<?> getChild (Task<?> target) throws ReflectionException {
+		return (Task<?>)decoratorChild.get(target);
+	}
+
+	protected static void setChild (Task<?> target, Task<?> child) throws ReflectionException {
+		decoratorChild.set(target, child);
+	}
+
 	protected Task task;
 	protected Task target;
 
@@ -53,22 +80,18 @@ abstract class ModelTaskAction implements Pool.Poolable {
 				logger.log("ADD", task + " to " + target);
 				// we need to check it task is in target before we add, as that will happen on init
 				if (target instanceof BranchTask) {
-					Field field = ClassReflection.getDeclaredField(BranchTask.class, "children");
-					field.setAccessible(true);
-					Array children = (Array)field.get(target);
+					Array children = getChildren(target);
 					if (!children.contains(task, true)) {
 						target.addChild(task);
 						return true;
 					}
 				} else if (target instanceof Decorator) {
-					Field field = ClassReflection.getDeclaredField(Decorator.class, "child");
-					field.setAccessible(true);
-					Task old = (Task)field.get(target);
+					Task old = getChild(target);
 					if (old == null) {
-						field.set(target, task);
+						setChild(target, task);
 					} else if (old != task) {
 						logger.log("ADD", "Replace " + old + " with " + task);
-						field.set(target, task);
+						setChild(target, task);
 					}
 					return true;
 				} else {
@@ -97,9 +120,7 @@ abstract class ModelTaskAction implements Pool.Poolable {
 				logger.log("INSERT", task + " to " + target + " at " + at);
 				// we need to check it task is in target before we add, as that will happen on init
 				if (target instanceof BranchTask) {
-					Field field = ClassReflection.getDeclaredField(BranchTask.class, "children");
-					field.setAccessible(true);
-					Array children = (Array)field.get(target);
+					Array children = getChildren(target);
 					// disallow if out of bounds,  allow to insert if empty
 					if (at > children.size && at > 0) {
 						logger.error("INSERT", "cannot insert " + task + " to " + target + " at " + at + " as its out of range");
@@ -120,11 +141,9 @@ abstract class ModelTaskAction implements Pool.Poolable {
 					return true;
 				} else if (target instanceof Decorator) {
 					// can insert if decorator is empty
-					Field field = ClassReflection.getDeclaredField(Decorator.class, "child");
-					field.setAccessible(true);
-					Object old = field.get(target);
+					Task old = getChild(target);
 					if (old == null && at == 0) {
-						field.set(target, task);
+						setChild(target, task);
 						return true;
 					} else {
 						logger.error("INSERT", "cannot insert " + task + " to " + target + " as its a decorator");
@@ -154,16 +173,12 @@ abstract class ModelTaskAction implements Pool.Poolable {
 				logger.log("REMOVE", task + " from " + target);
 				// we need to check it task is in target before we add, as that will happen on init
 				if (target instanceof BranchTask) {
-					Field field = ClassReflection.getDeclaredField(BranchTask.class, "children");
-					field.setAccessible(true);
-					Array children = (Array)field.get(target);
+					Array children = getChildren(target);
 					return children.removeValue(task, true);
 				} else if (target instanceof Decorator) {
-					Field field = ClassReflection.getDeclaredField(Decorator.class, "child");
-					field.setAccessible(true);
-					Object old = field.get(target);
+					Task old = getChild(target);
 					if (old == task || old == null) {
-						field.set(target, null);
+						setChild(target, null);
 					} else {
 						return false;
 					}
@@ -178,15 +193,46 @@ abstract class ModelTaskAction implements Pool.Poolable {
 		}
 	}
 
+	private final static Pool<Add> addPool = new Pool<Add>() {
+		@Override protected Add newObject () {
+			return new Add();
+		}
+	};
+
+	private final static Pool<Insert> insertPool = new Pool<Insert>() {
+		@Override protected Insert newObject () {
+			return new Insert();
+		}
+	};
+
+	private final static Pool<Remove> removePool = new Pool<Remove>() {
+		@Override protected Remove newObject () {
+			return new Remove();
+		}
+	};
+
 	public static ModelTaskAction add (Task task, Task target) {
-		return new Add().init(task, target);
+		return addPool.obtain().init(task, target);
 	}
 
 	public static ModelTaskAction insert (Task task, Task target, int at) {
-		return new Insert().init(task, target, at);
+		return insertPool.obtain().init(task, target, at);
 	}
 
 	public static ModelTaskAction remove (Task task, Task target) {
-		return new Remove().init(task, target);
+		return removePool.obtain().init(task, target);
+	}
+
+	/**
+	 * Return the action to its pool, it must not be used after this call
+	 */
+	public static void free (ModelTaskAction action) {
+		if (action instanceof Add) {
+			addPool.free((Add)action);
+		} else if (action instanceof Insert) {
+			insertPool.free((Insert)action);
+		} else if (action instanceof Remove) {
+			removePool.free((Remove)action);
+		}
 	}
 }
@@ -0,0 +1,110 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
+import com.badlogic.gdx.ai.utils.random.Distribution;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+import io.piotrjastrzebski.bteditor.core.BehaviorTreeWriter;
+
+/**
+ * Structural hash of {@link ModelTask}s, from task class, {@link TaskAttribute} values, comment and hashes of children
+ * <p>
+ * Values are hashed in the same form they are saved in, so equal hashes mean equal saved subtrees
+ */
+class ModelTaskHash {
+	private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+	private final static long FNV_PRIME = 0x100000001b3L;
+
+	private ModelTaskHash () {}
+
+	/**
+	 * @return hash of the task, uses cached hashes of the children
+	 */
+	public static <E> long hash (ModelTask<E> modelTask) {
+		Task<E> task = modelTask.getTask();
+		long hash = hash(task);
+		if (modelTask.hasComment())
+			hash = hash(hash, modelTask.getComment());
+		if (!modelTask.isMaterialized()) {
+			// dont materialize lazy subtrees just for the hash
+			for (int i = 0; i < task.getChildCount(); i++) {
+				hash = mix(hash, hashTree(modelTask.getModel(), task.getChild(i)));
+			}
+			return hash;
+		}
+		for (int i = 0; i < modelTask.getChildCount(); i++) {
+			hash = mix(hash, modelTask.getChild(i).getHash());
+		}
+		return hash;
+	}
+
+	/**
+	 * @return hash of the task and its children, without comments
+	 */
+	static long hashTree (Task<?> task) {
+		long hash = hash(task);
+		for (int i = 0; i < task.getChildCount(); i++) {
+			hash = mix(hash, hashTree(task.getChild(i)));
+		}
+		return hash;
+	}
+
+	/**
+	 * @return hash of a task that is not wrapped yet, same as it would have when wrapped
+	 */
+	static <E> long hashTree (ModelTree<E> model, Task<E> task) {
+		long hash = hash(task);
+		// same comment the task would get when wrapped
+		String comment = model.getComment(task);
+		if (comment != null && comment.trim().length() > 0)
+			hash = hash(hash, comment);
+		for (int i = 0; i < task.getChildCount(); i++) {
+			hash = mix(hash, hashTree(model, task.getChild(i)));
+		}
+		return hash;
+	}
+
+	private static long hash (Task<?> task) {
+		long hash = hash(FNV_OFFSET, task.getClass().getName());
+		for (TaskMetadata.Attribute attribute : TaskLibrary.getMetadata(task.getClass()).getAttributes()) {
+			hash = hash(hash, attribute.getName());
+			hash = hash(hash, valueOf(task, attribute));
+		}
+		return hash;
+	}
+
+	private static String valueOf (Task<?> task, TaskMetadata.Attribute attribute) {
+		Object value;
+		try {
+			value = attribute.get(task);
+		} catch (ReflectionException e) {
+			return "";
+		}
+		if (value instanceof Distribution) {
+			try {
+				return BehaviorTreeWriter.toParseableString((Distribution)value);
+			} catch (RuntimeException e) {
+				// no adapter for this distribution, identity is the best we can do
+				return value.getClass().getName() + "@" + System.identityHashCode(value);
+			}
+		}
+		return String.valueOf(value);
+	}
+
+	private static long hash (long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		// separator, so "ab" + "c" != "a" + "bc"
+		hash ^= 0xff;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+
+	private static long mix (long hash, long value) {
+		// order of children matters
+		hash ^= value + 0x9e3779b97f4a7c15L + (hash << 6) + (hash >>> 2);
+		return hash * FNV_PRIME;
+	}
+}
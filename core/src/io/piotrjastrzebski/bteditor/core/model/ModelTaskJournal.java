@@ -0,0 +1,154 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Journal of pending changes to children of {@link ModelTask}s, that need to be applied to wrapped {@link Task}s
+ * <p>
+ * Changes are recorded per target and task pair, only net difference between the model and the wrapped tasks is
+ * applied. Task that was added and removed does nothing, task that was moved multiple times is inserted once,
+ * at its final position.
+ */
+class ModelTaskJournal<E> {
+	private Array<ModelTask<E>> targets = new Array<>();
+	private IdentityMap<ModelTask<E>, Array<Task<E>>> targetToTasks = new IdentityMap<>();
+	private Pool<Array<Task<E>>> tasksPool = new Pool<Array<Task<E>>>() {
+		@Override protected Array<Task<E>> newObject () {
+			return new Array<>();
+		}
+	};
+	private int recorded;
+	private int coalesced;
+
+	/**
+	 * Record that task was added to, inserted into or removed from the target
+	 */
+	public void record (ModelTask<E> target, Task<E> task) {
+		recorded++;
+		Array<Task<E>> tasks = targetToTasks.get(target);
+		if (tasks == null) {
+			tasks = tasksPool.obtain();
+			targetToTasks.put(target, tasks);
+			targets.add(target);
+		}
+		if (!tasks.contains(task, true)) {
+			tasks.add(task);
+		}
+	}
+
+	/**
+	 * Forget all changes recorded for the target, its wrapped task is no longer part of the tree
+	 */
+	public void forget (ModelTask<E> target) {
+		if (targetToTasks.size == 0)
+			return;
+		Array<Task<E>> tasks = targetToTasks.remove(target);
+		if (tasks != null) {
+			targets.removeValue(target, true);
+			tasks.clear();
+			tasksPool.free(tasks);
+		}
+	}
+
+	/**
+	 * Apply net changes to wrapped tasks and clear the journal
+	 *
+	 * @return number of executed actions
+	 */
+	public int apply () {
+		int executed = 0;
+		for (int i = 0; i < targets.size; i++) {
+			ModelTask<E> target = targets.get(i);
+			executed += apply(target, targetToTasks.get(target));
+		}
+		coalesced += recorded - executed;
+		clear();
+		return executed;
+	}
+
+	private int apply (ModelTask<E> target, Array<Task<E>> tasks) {
+		Task<E> btTarget = target.getTask();
+		if (btTarget == null)
+			return 0;
+		int executed = 0;
+		// children at both ends that already match stay, after init of the model that is all of them
+		int btCount = btTarget.getChildCount();
+		int count = target.getChildCount();
+		int head = 0;
+		while (head < btCount && head < count && btTarget.getChild(head) == target.getChild(head).getTask())
+			head++;
+		int tail = 0;
+		while (tail < btCount - head && tail < count - head
+			&& btTarget.getChild(btCount - 1 - tail) == target.getChild(count - 1 - tail).getTask())
+			tail++;
+		// take out all changed tasks first, inserting one at a time would shift changed tasks that are not processed yet
+		for (int i = 0; i < tasks.size; i++) {
+			Task<E> task = tasks.get(i);
+			int index = indexOf(btTarget, task);
+			if (index >= head && index < btCount - tail) {
+				execute(ModelTaskAction.remove(btTarget, task));
+				executed++;
+			}
+		}
+		// untouched children are in correct order, insert changed ones at their final positions, front to back
+		for (int i = head; i < count - tail; i++) {
+			Task<E> task = target.getChild(i).getTask();
+			if (!tasks.contains(task, true))
+				continue;
+			execute(ModelTaskAction.insert(btTarget, task, i));
+			executed++;
+		}
+		return executed;
+	}
+
+	private void execute (ModelTaskAction action) {
+		action.execute();
+		ModelTaskAction.free(action);
+	}
+
+	private int indexOf (Task<E> target, Task<E> task) {
+		for (int i = 0; i < target.getChildCount(); i++) {
+			if (target.getChild(i) == task)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Drop all recorded changes
+	 */
+	public void clear () {
+		for (int i = 0; i < targets.size; i++) {
+			Array<Task<E>> tasks = targetToTasks.get(targets.get(i));
+			tasks.clear();
+			tasksPool.free(tasks);
+		}
+		targets.clear();
+		targetToTasks.clear();
+		recorded = 0;
+	}
+
+	/**
+	 * @return if there are changes that were not applied yet
+	 */
+	public boolean hasPending () {
+		return targets.size > 0;
+	}
+
+	/**
+	 * @return number of changes recorded since the journal was last applied
+	 */
+	public int getRecordedCount () {
+		return recorded;
+	}
+
+	/**
+	 * @return total number of recorded changes that did not have to be executed
+	 */
+	public int getCoalescedCount () {
+		return coalesced;
+	}
+}
@@ -4,9 +4,14 @@ import com.badlogic.gdx.ai.btree.BehaviorTree;
 import com.badlogic.gdx.ai.btree.Task;
 import com.badlogic.gdx.ai.btree.decorator.Include;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongMap;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.reflect.Field;
 import io.piotrjastrzebski.bteditor.core.BehaviorTreeEditor;
+import io.piotrjastrzebski.bteditor.core.BehaviorTreeWriter;
 import io.piotrjastrzebski.bteditor.core.Logger;
 
 /**
@@ -32,38 +37,113 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	private boolean valid;
 	private boolean dirty;
 	private ModelTask<E> root;
-	private Array<ModelTaskAction> pending = new Array<>();
+	private ModelTaskJournal<E> journal = new ModelTaskJournal<>();
+	private ModelTreeHistory<E> history = new ModelTreeHistory<>(this);
+	private SubtreePathResolver pathResolver;
+	// includes that depend on results from path resolver
+	private Array<ModelTask<E>> includes = new Array<>();
+	private SubtreePathResolver.Listener pathListener = new SubtreePathResolver.Listener() {
+		@Override public void resolved (String path, boolean exists) {
+			includeResolved(path);
+		}
+	};
+	// maps tasks in the tree to their model, by identity, so we dont have to walk the tree on every event
+	private IdentityMap<Task<E>, ModelTask<E>> taskToModel = new IdentityMap<>();
+	// tasks that were not found in lazy model, ie guards or the tree itself, so we dont search for them on every event
+	private IdentityMap<Task<E>, Boolean> notInModel = new IdentityMap<>();
+	private Array<Task<E>> findPath = new Array<>();
+	// ids of model tasks, for looking up tasks recorded in the timeline
+	private IntMap<ModelTask<E>> idToModel = new IntMap<>();
+	private int nextId;
+	// number of steps since init, written by the worker when stepping in background
+	private volatile int tick;
+	private StatusTimeline timeline = new StatusTimeline();
+	// null when not profiling
+	private TaskProfiler profiler;
+	// null when stepping on the calling thread
+	private BackgroundStepper<E> stepper;
+	// nested edits are validated when the outermost one ends
+	private int editDepth;
+	private Array<Breakpoint<E>> breakpoints = new Array<>();
+	// breakpoints by wrapped task, read by the thread that steps the tree, replaced as a whole, never modified
+	private volatile IdentityMap<Task<E>, Array<Breakpoint<E>>> armed = new IdentityMap<>();
+	// checked by the scheduler, on the worker when stepping in background
+	private volatile Breakpoint<E> hitBreakpoint;
+	private volatile int hitTick;
 	protected Logger logger = BehaviorTreeEditor.NULL_LOGGER;
 
+	private Pool<ModelTask<E>> taskPool;
+	private boolean debugPool;
+	private boolean lazy;
+
 	public ModelTree () {
-		taskLibrary = new TaskLibrary<>();
+		this(new TaskLibrary<E>());
+	}
+
+	/**
+	 * @param taskLibrary library of tasks, can be shared between models
+	 */
+	public ModelTree (TaskLibrary<E> taskLibrary) {
+		this.taskLibrary = taskLibrary;
+		taskPool = new Pool<ModelTask<E>>() {
+			@Override protected ModelTask<E> newObject () {
+				ModelTask<E> task = new ModelTask<>(ModelTree.this);
+				task.setChangeListener(ModelTree.this);
+				return task;
+			}
+		};
 	}
 
 	public void init (BehaviorTree<E> bt) {
-		if (this.bt != null)
-			reset();
-		this.bt = bt;
-		getTaskLibrary().initFrom(bt);
-		// TODO pool all the things
-		root = obtain();
-		root.init(bt.getChild(0));
-		valid = root.isValid();
-		if (valid) executePending();
-		bt.addListener(this);
+		beginEdit();
+		try {
+			if (this.bt != null)
+				reset();
+			this.bt = bt;
+			getTaskLibrary().initFrom(bt);
+			root = obtain();
+			root.init(bt.getChild(0));
+			index(root);
+			valid = root.isValid();
+			if (valid) executePending();
+			bt.addListener(btListener());
+			markSaved();
+		} finally {
+			endEdit();
+		}
 	}
 
 	public void step () {
-		if (!isValid()) {
+		if (stepper != null && !stepper.isWorker()) {
+			// stepping in background, worker will step at next safe point
+			stepper.requestStep();
+			return;
+		}
+		stepNow();
+	}
+
+	void stepNow () {
+		// worker only reads the result, changes are validated on the ui thread
+		if (stepper == null)
+			validate();
+		if (!valid) {
 			logger.log(TAG, "invalid");
 			return;
 		}
 		if (dirty) {
 			logger.log(TAG, "dirty, reset bt");
 			dirty = false;
+			// status of tasks changes silently, views will catch up on next status update
 			bt.reset();
-			notifyRebuild();
 		}
-		bt.step();
+		tick++;
+		if (profiler != null) {
+			profiler.beginStep();
+			bt.step();
+			profiler.endStep();
+		} else {
+			bt.step();
+		}
 	}
 
 	public boolean checkAdd (ModelTask<E> target, Task<E> task) {
@@ -91,14 +171,21 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	public ModelTask<E> add (ModelTask<E> target, ModelTask<E> task) {
-		if (!checkAdd(target, task.getTask())) {
-			logger.error(TAG, task + " is not a valid add target to " + target);
-			return null;
+		beginEdit();
+		try {
+			if (!checkAdd(target, task.getTask())) {
+				logger.error(TAG, task + " is not a valid add target to " + target);
+				return null;
+			}
+			target.addChild(task);
+			validate();
+			dirty = true;
+			history.added(task);
+			notifyAdded(task);
+			return task;
+		} finally {
+			endEdit();
 		}
-		target.addChild(task);
-		validate();
-		dirty = true;
-		return task;
 	}
 
 	public boolean checkInsert (ModelTask<E> target, Task<E> task, int at) {
@@ -126,14 +213,49 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	public ModelTask<E> insert (ModelTask<E> target, ModelTask<E> task, int at) {
-		if (!checkInsert(target, task.getTask(), at)) {
-			logger.error(TAG, task + " is not a valid insert target to " + target + " at " + at);
-			return null;
+		beginEdit();
+		try {
+			if (!checkInsert(target, task.getTask(), at)) {
+				logger.error(TAG, task + " is not a valid insert target to " + target + " at " + at);
+				return null;
+			}
+			target.insertChild(at, task);
+			task.validate();
+			dirty = true;
+			history.added(task);
+			notifyAdded(task);
+			return task;
+		} finally {
+			endEdit();
+		}
+	}
+
+	/**
+	 * Move task that is already in the model to target at given index, if task is not in the model it is inserted
+	 *
+	 * @param at index in target, after the task was removed from its current parent
+	 */
+	public ModelTask<E> move (ModelTask<E> target, ModelTask<E> task, int at) {
+		beginEdit();
+		try {
+			ModelTask<E> from = task.getParent();
+			if (from == null)
+				return insert(target, task, at);
+			if (!checkInsert(target, task.getTask(), at)) {
+				logger.error(TAG, task + " is not a valid move target to " + target + " at " + at);
+				return null;
+			}
+			int fromIndex = task.getIndexInParent();
+			from.removeChild(task);
+			target.insertChild(at, task);
+			validate();
+			dirty = true;
+			history.moved(from, fromIndex, task);
+			notifyMoved(from, task);
+			return task;
+		} finally {
+			endEdit();
 		}
-		target.insertChild(at, task);
-		task.validate();
-		dirty = true;
-		return task;
 	}
 
 	public ModelTask<E> remove (Task<E> target) {
@@ -146,44 +268,315 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	public ModelTask<E> remove (ModelTask<E> target) {
-		ModelTask<E> parent = target.getParent();
-		// root has null parent
-		if (parent == null) {
-			if (target == root) {
-				reset();
-			} else {
-				logger.error(TAG, "Target is not part of the model!");
+		beginEdit();
+		try {
+			ModelTask<E> parent = target.getParent();
+			// root has null parent
+			if (parent == null) {
+				if (target == root) {
+					notifyRemoved(null, target);
+					reset();
+				} else {
+					logger.error(TAG, "Target is not part of the model!");
+				}
+				return target;
 			}
+			int index = target.getIndexInParent();
+			parent.removeChild(target);
+			validate();
+			dirty = true;
+			history.removed(parent, target, index);
+			notifyRemoved(parent, target);
 			return target;
+		} finally {
+			endEdit();
 		}
-		parent.removeChild(target);
-		validate();
-		dirty = true;
-		return target;
 	}
 
-	protected void addTaskAction(ModelTaskAction action) {
-		pending.add(action);
+	/**
+	 * Remove the task from the model and free it, unless undo history needs it
+	 *
+	 * Tasks removed via {@link #remove(ModelTask)} must not be freed while the undo history is enabled
+	 */
+	public void trash (ModelTask<E> target) {
+		boolean isRoot = target == root;
+		remove(target);
+		// removing root resets the model, it will free the task
+		if (!isRoot && target.historyRefs == 0)
+			free(target);
+	}
+
+	/**
+	 * Group all following changes into single undoable transaction, until matching {@link #endTransaction()}
+	 */
+	public void beginTransaction () {
+		history.begin();
+	}
+
+	public void endTransaction () {
+		history.end();
+	}
+
+	/**
+	 * @return if last transaction was undone
+	 */
+	public boolean undo () {
+		beginEdit();
+		try {
+			return history.undo();
+		} finally {
+			endEdit();
+		}
+	}
+
+	/**
+	 * @return if last undone transaction was redone
+	 */
+	public boolean redo () {
+		beginEdit();
+		try {
+			return history.redo();
+		} finally {
+			endEdit();
+		}
+	}
+
+	public boolean canUndo () {
+		return history.canUndo();
+	}
+
+	public boolean canRedo () {
+		return history.canRedo();
+	}
+
+	/**
+	 * @param size max number of undoable transactions, 0 disables undo
+	 */
+	public void setHistorySize (int size) {
+		history.setSize(size);
+	}
+
+	public int getHistorySize () {
+		return history.getSize();
+	}
+
+	protected void recordAttribute (ModelTask<E> task, Field field, Object before, Object after) {
+		history.attributeChanged(task, field, before, after);
+	}
+
+	/**
+	 * Record that task was added to, inserted into or removed from target, change will be applied to wrapped tree when
+	 * the model is valid
+	 */
+	protected void record (ModelTask<E> target, Task<E> task) {
+		journal.record(target, task);
+	}
+
+	/**
+	 * Forget pending changes to the target, called when it is reset
+	 */
+	protected void forget (ModelTask<E> target) {
+		journal.forget(target);
+	}
+
+	/**
+	 * Find {@link ModelTask} that wraps the task, in lazy model tasks on the path to it are materialized
+	 *
+	 * @return found task or null if it is not in the model
+	 */
+	public ModelTask<E> find (Task<E> target) {
+		return findBTTask(target);
 	}
 
 	private ModelTask<E> findBTTask (Task<E> target) {
-		return root.find(target);
+		if (target == null)
+			return null;
+		ModelTask<E> found = taskToModel.get(target);
+		if (found != null || !lazy || root == null || notInModel.containsKey(target))
+			return found;
+		// search wrapped tasks, so we materialize only the path to the target, found tasks are indexed after that
+		Array<Task<E>> path = findPath;
+		path.clear();
+		if (!findPath(root.getTask(), target, path)) {
+			notInModel.put(target, Boolean.TRUE);
+			return null;
+		}
+		ModelTask<E> current = root;
+		for (int i = 1; i < path.size && current != null; i++) {
+			Task<E> next = path.get(i);
+			ModelTask<E> child = null;
+			for (int j = 0; j < current.getChildCount(); j++) {
+				if (current.getChild(j).getTask() == next) {
+					child = current.getChild(j);
+					break;
+				}
+			}
+			current = child;
+		}
+		path.clear();
+		return current;
+	}
+
+	private boolean findPath (Task<E> task, Task<E> target, Array<Task<E>> path) {
+		path.add(task);
+		if (task == target)
+			return true;
+		for (int i = 0; i < task.getChildCount(); i++) {
+			if (findPath(task.getChild(i), target, path))
+				return true;
+		}
+		path.pop();
+		return false;
 	}
 
+	/**
+	 * Called when child was added to parent, child and its children are indexed if parent is part of this model
+	 */
+	protected void attached (ModelTask<E> parent, ModelTask<E> child) {
+		// we dont care about free floating tasks, ie ones created for drag and drop
+		Task<E> task = parent.getTask();
+		if (task == null || taskToModel.get(task) != parent)
+			return;
+		index(child);
+	}
+
+	/**
+	 * Called when child was removed from its parent, child and its children are removed from the index
+	 */
+	protected void detached (ModelTask<E> child) {
+		unindex(child);
+		Array<ModelTask<E>> children = child.getMaterializedChildren();
+		for (int i = 0; i < children.size; i++) {
+			detached(children.get(i));
+		}
+	}
+
+	private void index (ModelTask<E> task) {
+		taskToModel.put(task.getTask(), task);
+		// may have been missing before
+		if (notInModel.size > 0)
+			notInModel.clear();
+		// keep the id if task comes back, ie via undo, so its recorded history still matches
+		if (task.id == 0)
+			task.id = ++nextId;
+		idToModel.put(task.id, task);
+		Array<ModelTask<E>> children = task.getMaterializedChildren();
+		for (int i = 0; i < children.size; i++) {
+			index(children.get(i));
+		}
+	}
+
+	protected void unindex (ModelTask<E> task) {
+		Task<E> t = task.getTask();
+		// same task may be mapped to a different model task, leave it alone if so
+		if (t != null && taskToModel.get(t) == task) {
+			taskToModel.remove(t);
+		}
+		if (task.id != 0 && idToModel.get(task.id) == task) {
+			idToModel.remove(task.id);
+		}
+	}
+
+	/**
+	 * @return task with given id that is in this model, null if there is none
+	 * @see ModelTask#getId()
+	 */
+	public ModelTask<E> getTask (int id) {
+		return idToModel.get(id);
+	}
+
+	/**
+	 * @return pooled {@link ModelTask}, must be returned via {@link #free(ModelTask)} when no longer used
+	 */
 	public ModelTask<E> obtain () {
-		ModelTask<E> ebtTask = new ModelTask<>(this);
-		ebtTask.setChangeListener(this);
-		return ebtTask;
+		ModelTask<E> task = taskPool.obtain();
+		task.freed = false;
+		return task;
 	}
 
+	/**
+	 * Return the task and all of its children to the pool, task must not be used after this call
+	 */
 	public void free (ModelTask<E> task) {
-		task.reset();
+		if (task.freed) {
+			if (debugPool)
+				throw new IllegalStateException("ModelTask freed twice " + task);
+			logger.error(TAG, "ModelTask freed twice " + task);
+			return;
+		}
+		// reset will free the children
+		taskPool.free(task);
+		task.freed = true;
+	}
+
+	/**
+	 * In lazy model children of tasks are wrapped when they are needed, not when the model is initialized
+	 *
+	 * Must be set before {@link #init(BehaviorTree)}
+	 */
+	public void setLazy (boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	public boolean isLazy () {
+		return lazy;
+	}
+
+	private CommentSource commentSource;
+	/**
+	 * @param commentSource provides comments for tasks when they are wrapped, ie from parsed file
+	 */
+	public void setCommentSource (CommentSource commentSource) {
+		this.commentSource = commentSource;
+	}
+
+	/**
+	 * @return comment of the task from the comment source, also for tasks in lazy model that are not wrapped yet
+	 */
+	public String getComment (Task<E> task) {
+		return commentSource != null ? commentSource.getComment(task) : null;
+	}
+
+	/**
+	 * @param debugPool if true, double free and use of freed {@link ModelTask}s will throw {@link IllegalStateException}
+	 */
+	public void setDebugPool (boolean debugPool) {
+		this.debugPool = debugPool;
 	}
 
+	public boolean isDebugPool () {
+		return debugPool;
+	}
+
+	/**
+	 * Validate the model, only tasks that changed since last validation are checked
+	 * <p>
+	 * Valid changes are applied to the wrapped tree, when stepping in background this waits for a safe point. Call on the
+	 * ui thread after changing tasks directly, methods of the model do this themselves.
+	 *
+	 * @return if the model is valid
+	 */
 	public boolean validate () {
+		// nothing changed, no need to wait for the worker
+		if (root != null && !root.isPendingValidation() && !journal.hasPending()) {
+			return valid;
+		}
+		beginEdit();
+		try {
+			return validatePending();
+		} finally {
+			endEdit();
+		}
+	}
+
+	private boolean validatePending () {
 		if (root == null) {
 			return valid = false;
 		}
+		// nothing changed, nothing to do
+		if (!root.isPendingValidation() && !journal.hasPending()) {
+			return valid;
+		}
 		valid = root.validate();
 		if (valid) {
 			// execute pending, modify wrapped behavior tree
@@ -193,22 +586,172 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	protected void executePending () {
-		for (ModelTaskAction modelTaskAction : pending) {
-			modelTaskAction.execute();
-		}
-		pending.clear();
+		journal.apply();
+	}
+
+	/**
+	 * @return total number of changes to the model that did not have to be applied to the wrapped tree
+	 */
+	public int getCoalescedCount () {
+		return journal.getCoalescedCount();
 	}
 
 	public boolean isDirty () {
-		return pending.size > 0;
+		return journal.hasPending();
+	}
+
+	/**
+	 * Apply results of background checks, call every frame on the ui thread
+	 */
+	public void update () {
+		getPathResolver().update();
+	}
+
+	void watchInclude (ModelTask<E> task) {
+		if (!includes.contains(task, true))
+			includes.add(task);
+	}
+
+	void unwatchInclude (ModelTask<E> task) {
+		includes.removeValue(task, true);
+	}
+
+	private void includeResolved (String path) {
+		boolean found = false;
+		for (int i = 0; i < includes.size; i++) {
+			ModelTask<E> task = includes.get(i);
+			if (path.equals(((Include)task.getTask()).subtree)) {
+				task.markDirty();
+				found = true;
+			}
+		}
+		if (!found)
+			return;
+		beginEdit();
+		try {
+			validatePending();
+			// validity may be the same, but it is no longer pending
+			for (int i = 0; i < includes.size; i++) {
+				ModelTask<E> task = includes.get(i);
+				if (path.equals(((Include)task.getTask()).subtree)) {
+					validChanged(task, task.isValid());
+				}
+			}
+		} finally {
+			endEdit();
+		}
+	}
+
+	public SubtreePathResolver getPathResolver () {
+		if (pathResolver == null)
+			setPathResolver(new SubtreePathResolver());
+		return pathResolver;
+	}
+
+	/**
+	 * Set resolver used to check subtrees of includes, can be shared between models
+	 */
+	public void setPathResolver (SubtreePathResolver pathResolver) {
+		if (this.pathResolver != null)
+			this.pathResolver.removeListener(pathListener);
+		this.pathResolver = pathResolver;
+		pathResolver.addListener(pathListener);
+	}
+
+	/**
+	 * @return structural hash of the whole tree, 0 if there is no tree
+	 */
+	public long getHash () {
+		return root != null ? root.getHash() : 0;
+	}
+
+	private long savedHash;
+	/**
+	 * Mark current state of the tree as saved
+	 */
+	public void markSaved () {
+		savedHash = getHash();
+	}
+
+	/**
+	 * @return if the tree is different from the one last marked with {@link #markSaved()}
+	 */
+	public boolean isChangedSinceSave () {
+		return getHash() != savedHash;
 	}
 
+	private long serializedHash;
+	private String serialized;
+	/**
+	 * Serialize the tree, result is reused until the tree changes
+	 *
+	 * @return serialized tree or null if there is no tree
+	 */
+	public String serialize () {
+		if (root == null)
+			return null;
+		long hash = root.getHash();
+		if (serialized == null || serializedHash != hash) {
+			serialized = BehaviorTreeWriter.serialize(root);
+			serializedHash = hash;
+		}
+		return serialized;
+	}
+
+	/**
+	 * Find subtrees that are identical copies of each other
+	 *
+	 * Only tasks with children are considered, copies nested in bigger copies are not reported separately. In lazy model
+	 * subtrees that are not materialized are compared as a whole, copies inside them are not reported.
+	 *
+	 * @return groups of identical subtrees
+	 */
+	public Array<Array<ModelTask<E>>> findDuplicates () {
+		Array<Array<ModelTask<E>>> duplicates = new Array<>();
+		if (root == null)
+			return duplicates;
+		LongMap<Array<ModelTask<E>>> hashToTasks = new LongMap<>();
+		collect(root, hashToTasks);
+		for (Array<ModelTask<E>> tasks : hashToTasks.values()) {
+			if (tasks.size < 2)
+				continue;
+			for (ModelTask<E> task : tasks) {
+				ModelTask<E> parent = task.getParent();
+				if (parent == null || hashToTasks.get(parent.getHash()).size < 2) {
+					duplicates.add(tasks);
+					break;
+				}
+			}
+		}
+		return duplicates;
+	}
+
+	private void collect (ModelTask<E> task, LongMap<Array<ModelTask<E>>> hashToTasks) {
+		if (!task.hasChildren())
+			return;
+		long hash = task.getHash();
+		Array<ModelTask<E>> tasks = hashToTasks.get(hash);
+		if (tasks == null) {
+			tasks = new Array<>();
+			hashToTasks.put(hash, tasks);
+		}
+		tasks.add(task);
+		// dont materialize lazy subtrees just to look for copies
+		Array<ModelTask<E>> children = task.getMaterializedChildren();
+		for (int i = 0; i < children.size; i++) {
+			collect(children.get(i), hashToTasks);
+		}
+	}
+
+	/**
+	 * @return if the model was valid when last validated, changes are validated at the end of each edit and before
+	 * each step, see {@link #validate()}
+	 */
 	public boolean isValid () {
-		validate();
 		return valid;
 	}
 
-	SnapshotArray<Listener<E>> listeners = new SnapshotArray<>();
+	SnapshotArray<Listener<E>> listeners = new SnapshotArray<>(Listener.class);
 
 	public void addListener (Listener<E> listener) {
 		if (!listeners.contains(listener, true)) {
@@ -221,16 +764,86 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	@Override public void statusUpdated (Task<E> task, Task.Status previousStatus) {
+		TaskProfiler profiler = this.profiler;
+		if (profiler != null)
+			profiler.pause();
 		ModelTask<E> modelTask = findBTTask(task);
 		if (modelTask == null) {
 			logger.error(TAG, "ModelTask not found for " + task);
-			return;
+		} else {
+			if (profiler != null)
+				profiler.record(modelTask.id, task.getStatus());
+			checkBreakpoints(task, task.getStatus(), tick);
+			notifyStatus(modelTask, previousStatus, task.getStatus(), tick);
 		}
+		// the one we paused, listeners may have replaced it
+		if (profiler != null)
+			profiler.resume();
+	}
+
+	/**
+	 * Status update from the worker of {@link BackgroundStepper}, task may have changed since
+	 *
+	 * Breakpoints were checked by the worker already, see {@link #checkBreakpoints(Task, Task.Status, int)}
+	 */
+	void statusUpdated (Task<E> task, Task.Status previousStatus, Task.Status status, int tick) {
+		ModelTask<E> modelTask = findBTTask(task);
+		// removed after the event, or the tree itself
+		if (modelTask == null)
+			return;
+		notifyStatus(modelTask, previousStatus, status, tick);
+	}
+
+	private void notifyStatus (ModelTask<E> task, Task.Status from, Task.Status to, int tick) {
+		timeline.record(tick, task.id, from, to);
 		for (Listener<E> listener : listeners) {
-			listener.statusChanged(modelTask, previousStatus, modelTask.getStatus());
+			listener.statusChanged(task, from, to);
 		}
 	}
 
+	/**
+	 * Check breakpoints of the task on the thread that steps the tree, so stepping stops at the update that hit
+	 */
+	void checkBreakpoints (Task<E> task, Task.Status status, int tick) {
+		IdentityMap<Task<E>, Array<Breakpoint<E>>> armed = this.armed;
+		// status updates of tasks without breakpoints cost a single lookup
+		if (armed.size == 0)
+			return;
+		Array<Breakpoint<E>> taskBreakpoints = armed.get(task);
+		if (taskBreakpoints == null)
+			return;
+		E blackboard = bt != null ? bt.getObject() : null;
+		for (int i = 0; i < taskBreakpoints.size; i++) {
+			Breakpoint<E> breakpoint = taskBreakpoints.get(i);
+			if (breakpoint.check(status, blackboard)) {
+				// tick first, it is visible to whoever sees the hit
+				hitTick = tick;
+				hitBreakpoint = breakpoint;
+			}
+		}
+	}
+
+	/**
+	 * Publish current breakpoints to the stepping thread, call on the ui thread when breakpoints or the tree change
+	 */
+	private void armBreakpoints () {
+		IdentityMap<Task<E>, Array<Breakpoint<E>>> armed = new IdentityMap<>();
+		for (int i = 0; i < breakpoints.size; i++) {
+			Breakpoint<E> breakpoint = breakpoints.get(i);
+			// not in the model, armed again when undo brings it back, pooled tasks keep their id
+			if (idToModel.get(breakpoint.id) != breakpoint.getTask())
+				continue;
+			Task<E> task = breakpoint.getTask().getTask();
+			Array<Breakpoint<E>> taskBreakpoints = armed.get(task);
+			if (taskBreakpoints == null) {
+				taskBreakpoints = new Array<>();
+				armed.put(task, taskBreakpoints);
+			}
+			taskBreakpoints.add(breakpoint);
+		}
+		this.armed = armed;
+	}
+
 	@Override public void childAdded (Task<E> task, int index) {
 		if (task instanceof Include) {
 			ModelTask<E> btTask = findBTTask(task);
@@ -238,7 +851,10 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 //			btTask.addChild(task.getChild(0));
 			// TODO do we replace include with loaded child, or add it as child to include?
 			// TODO could replace only if its root for whatever reason
+			// loaded by the tree, not something the user did
+			history.pause();
 			add(btTask, task.getChild(0));
+			history.resume();
 		}
 	}
 
@@ -249,13 +865,32 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 	}
 
 	@Override public void reset () {
-		if (root != null)
-			root.reset();
-		root = null;
-		valid = false;
-		if (bt != null) {
-			bt.removeListener(this);
-			bt = null;
+		beginEdit();
+		try {
+			history.clear();
+			if (root != null)
+				free(root);
+			root = null;
+			taskToModel.clear();
+			notInModel.clear();
+			idToModel.clear();
+			nextId = 0;
+			tick = 0;
+			timeline.clear();
+			// ids are reused
+			if (profiler != null)
+				profiler.clear();
+			clearBreakpoints();
+			journal.clear();
+			serialized = null;
+			savedHash = 0;
+			valid = false;
+			if (bt != null) {
+				bt.removeListener(btListener());
+				bt = null;
+			}
+		} finally {
+			endEdit();
 		}
 	}
 
@@ -270,6 +905,120 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 		return taskLibrary;
 	}
 
+	/**
+	 * @return number of steps since init
+	 */
+	public int getTick () {
+		return tick;
+	}
+
+	/**
+	 * @return recorded status changes of tasks in this model
+	 */
+	public StatusTimeline getTimeline () {
+		return timeline;
+	}
+
+	/**
+	 * @param capacity max number of recorded status changes, recorded changes are discarded
+	 */
+	public void setTimelineCapacity (int capacity) {
+		timeline.setCapacity(capacity);
+	}
+
+	/**
+	 * Set profiler that measures time spent in each task, profiling has no cost if there is none
+	 *
+	 * @param profiler profiler to use, null to stop profiling
+	 */
+	public void setProfiler (TaskProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * @return current profiler, null if not profiling
+	 */
+	public TaskProfiler getProfiler () {
+		return profiler;
+	}
+
+	/**
+	 * Break when the task enters given status, see {@link Breakpoint}
+	 *
+	 * @param task   task in this model
+	 * @param status status to break on, null for any status update
+	 * @return added breakpoint, for further setup
+	 */
+	public Breakpoint<E> addBreakpoint (ModelTask<E> task, Task.Status status) {
+		Breakpoint<E> breakpoint = new Breakpoint<>(task, status);
+		addBreakpoint(breakpoint);
+		return breakpoint;
+	}
+
+	/**
+	 * Add breakpoint, when it hits {@link StepScheduler} stops stepping until {@link #clearBreakpointHit()}
+	 * <p>
+	 * Breakpoints are checked by the thread that steps the tree, with the blackboard as it is at that update, so
+	 * stepping in background stops at the same tick as stepping on the ui thread.
+	 */
+	public void addBreakpoint (Breakpoint<E> breakpoint) {
+		if (breakpoint.id == 0 || idToModel.get(breakpoint.id) != breakpoint.getTask())
+			throw new IllegalArgumentException("Task of the breakpoint is not in this model!");
+		if (breakpoints.contains(breakpoint, true))
+			return;
+		breakpoints.add(breakpoint);
+		armBreakpoints();
+	}
+
+	public void removeBreakpoint (Breakpoint<E> breakpoint) {
+		if (!breakpoints.removeValue(breakpoint, true))
+			return;
+		armBreakpoints();
+		if (hitBreakpoint == breakpoint)
+			hitBreakpoint = null;
+	}
+
+	public void clearBreakpoints () {
+		breakpoints.clear();
+		armBreakpoints();
+		hitBreakpoint = null;
+	}
+
+	/**
+	 * @return all breakpoints in this model, do not modify
+	 */
+	public Array<Breakpoint<E>> getBreakpoints () {
+		return breakpoints;
+	}
+
+	/**
+	 * @return true if a breakpoint hit and stepping should stop
+	 */
+	public boolean isBreakpointHit () {
+		return hitBreakpoint != null;
+	}
+
+	/**
+	 * @return last breakpoint that hit, null if there is none or it was cleared
+	 */
+	public Breakpoint<E> getHitBreakpoint () {
+		return hitBreakpoint;
+	}
+
+	/**
+	 * @return tick at which last breakpoint hit
+	 */
+	public int getHitTick () {
+		return hitTick;
+	}
+
+	/**
+	 * Continue stepping after a breakpoint hit
+	 */
+	public void clearBreakpointHit () {
+		hitBreakpoint = null;
+	}
+
 	public ModelTask<E> getRootNode () {
 		return root;
 	}
@@ -279,15 +1028,117 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 		ModelTaskAction.setLogger(logger);
 	}
 
+	void setStepper (BackgroundStepper<E> stepper) {
+		if (bt != null)
+			bt.removeListener(btListener());
+		this.stepper = stepper;
+		if (bt != null)
+			bt.addListener(btListener());
+	}
+
+	private BehaviorTree.Listener<E> btListener () {
+		return stepper != null ? stepper : this;
+	}
+
+	/**
+	 * @return stepper that steps this model on a worker thread, null if there is none
+	 */
+	public BackgroundStepper<E> getStepper () {
+		return stepper;
+	}
+
+	/**
+	 * Wait for a safe point between steps before editing the tree, must be followed by {@link #endEdit()}
+	 * <p>
+	 * Only needed when stepping in background and changing tasks directly, methods of the model do this themselves.
+	 */
+	public void beginEdit () {
+		if (stepper != null)
+			stepper.lock();
+		editDepth++;
+	}
+
+	/**
+	 * End of the edit, changes are validated and applied to the wrapped tree before the worker can continue
+	 */
+	public void endEdit () {
+		try {
+			if (editDepth == 1) {
+				validatePending();
+				// wrapped tasks may have been replaced
+				if (breakpoints.size > 0)
+					armBreakpoints();
+			}
+		} finally {
+			if (editDepth > 0)
+				editDepth--;
+			if (stepper != null)
+				stepper.unlock();
+		}
+	}
+
 	public BehaviorTree getBehaviorTree () {
 		return bt;
 	}
 
+	/**
+	 * Notify listeners that attributes of the task were changed
+	 */
+	protected void attributeChanged (ModelTask<E> task) {
+		Listener<E>[] snapshot = listeners.begin();
+		for (int i = 0; i < listeners.size; i++) {
+			snapshot[i].attributeChanged(task);
+		}
+		listeners.end();
+	}
+
+	protected void materialized (ModelTask<E> task) {
+		// free floating tasks are not interesting
+		if (taskToModel.get(task.getTask()) != task)
+			return;
+		Listener<E>[] snapshot = listeners.begin();
+		for (int i = 0; i < listeners.size; i++) {
+			snapshot[i].nodeMaterialized(task);
+		}
+		listeners.end();
+	}
+
+	private void notifyAdded (ModelTask<E> task) {
+		Listener<E>[] snapshot = listeners.begin();
+		for (int i = 0; i < listeners.size; i++) {
+			snapshot[i].nodeAdded(task);
+		}
+		listeners.end();
+	}
+
+	private void notifyRemoved (ModelTask<E> parent, ModelTask<E> task) {
+		Listener<E>[] snapshot = listeners.begin();
+		for (int i = 0; i < listeners.size; i++) {
+			snapshot[i].nodeRemoved(parent, task);
+		}
+		listeners.end();
+	}
+
+	private void notifyMoved (ModelTask<E> from, ModelTask<E> task) {
+		Listener<E>[] snapshot = listeners.begin();
+		for (int i = 0; i < listeners.size; i++) {
+			snapshot[i].nodeMoved(from, task);
+		}
+		listeners.end();
+	}
+
+	/**
+	 * Request full rebuild of all listeners, prefer fine grained events if possible
+	 */
+	public void requestRebuild () {
+		notifyRebuild();
+	}
+
 	private void notifyRebuild () {
 		// listeners are dumb, they removed themselves in here sometimes
-		Object[] snapshot = listeners.begin();
+		Listener<E>[] snapshot = listeners.begin();
 		for (int i = 0; i < listeners.size; i++) {
-			((Listener)snapshot[i]).rebuild();
+			snapshot[i].rebuild();
 		}
 		listeners.end();
 	}
@@ -297,6 +1148,42 @@ public class ModelTree<E> implements Pool.Poolable, BehaviorTree.Listener<E>, Mo
 
 		void validityChanged (ModelTask<E> task, boolean isValid);
 
+		/**
+		 * Called when task was added to the model, task is already in its parent
+		 */
+		void nodeAdded (ModelTask<E> task);
+
+		/**
+		 * Called when task was removed from the model
+		 *
+		 * @param parent previous parent of the task, null if task was the root
+		 */
+		void nodeRemoved (ModelTask<E> parent, ModelTask<E> task);
+
+		/**
+		 * Called when task was moved within the model, task is already in its new parent
+		 *
+		 * @param from previous parent of the task
+		 */
+		void nodeMoved (ModelTask<E> from, ModelTask<E> task);
+
+		/**
+		 * Called when attributes of the wrapped task changed
+		 */
+		void attributeChanged (ModelTask<E> task);
+
+		/**
+		 * Called when children of task in lazy model were wrapped
+		 */
+		void nodeMaterialized (ModelTask<E> task);
+
 		void rebuild();
 	}
+
+	public interface CommentSource {
+		/**
+		 * @return comment for the task or null
+		 */
+		String getComment (Task<?> task);
+	}
 }
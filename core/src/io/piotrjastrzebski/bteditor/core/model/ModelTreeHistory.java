@@ -0,0 +1,327 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.reflect.Field;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+/**
+ * Undo and redo history of changes made to the {@link ModelTree}
+ * <p>
+ * Each change is stored as a small operation that can be inverted, tasks removed from the model are kept alive by the
+ * history until the operations that reference them are dropped. Operations are grouped into transactions, undo and
+ * redo work on whole transactions. Number of kept transactions is capped.
+ */
+class ModelTreeHistory<E> {
+	private final static String TAG = ModelTreeHistory.class.getSimpleName();
+	private final static int ADD = 0;
+	private final static int REMOVE = 1;
+	private final static int MOVE = 2;
+	private final static int ATTRIBUTE = 3;
+
+	private ModelTree<E> model;
+	private Array<Array<Operation<E>>> undo = new Array<>();
+	private Array<Array<Operation<E>>> redo = new Array<>();
+	private Array<Operation<E>> transaction;
+	private int depth;
+	private int size = 64;
+	private int paused;
+
+	private Pool<Operation<E>> operationPool = new Pool<Operation<E>>() {
+		@Override protected Operation<E> newObject () {
+			return new Operation<>();
+		}
+	};
+	private Pool<Array<Operation<E>>> transactionPool = new Pool<Array<Operation<E>>>() {
+		@Override protected Array<Operation<E>> newObject () {
+			return new Array<>(4);
+		}
+	};
+
+	public ModelTreeHistory (ModelTree<E> model) {
+		this.model = model;
+	}
+
+	public void begin () {
+		if (depth++ == 0) {
+			transaction = transactionPool.obtain();
+		}
+	}
+
+	public void end () {
+		if (depth == 0)
+			throw new IllegalStateException("end() called without matching begin()");
+		if (--depth > 0)
+			return;
+		if (transaction.size > 0) {
+			push(transaction);
+		} else {
+			transactionPool.free(transaction);
+		}
+		transaction = null;
+	}
+
+	/**
+	 * Task was added or inserted to its current parent
+	 */
+	public void added (ModelTask<E> task) {
+		if (!isRecording())
+			return;
+		Operation<E> op = obtain(ADD, task);
+		op.parent = ref(task.getParent());
+		op.index = task.getIndexInParent();
+		record(op);
+	}
+
+	/**
+	 * Task was removed from parent at index
+	 */
+	public void removed (ModelTask<E> parent, ModelTask<E> task, int index) {
+		if (!isRecording())
+			return;
+		Operation<E> op = obtain(REMOVE, task);
+		op.parent = ref(parent);
+		op.index = index;
+		record(op);
+	}
+
+	/**
+	 * Task was moved from parent at index to its current parent
+	 */
+	public void moved (ModelTask<E> from, int fromIndex, ModelTask<E> task) {
+		if (!isRecording())
+			return;
+		Operation<E> op = obtain(MOVE, task);
+		op.from = ref(from);
+		op.fromIndex = fromIndex;
+		op.parent = ref(task.getParent());
+		op.index = task.getIndexInParent();
+		record(op);
+	}
+
+	/**
+	 * Attribute of wrapped task changed value
+	 */
+	public void attributeChanged (ModelTask<E> task, Field field, Object before, Object after) {
+		if (!isRecording())
+			return;
+		// consecutive edits of same field, ie typing, are merged into one
+		if (depth == 0 && undo.size > 0 && redo.size == 0) {
+			Array<Operation<E>> last = undo.peek();
+			Operation<E> op = last.first();
+			if (last.size == 1 && op.type == ATTRIBUTE && op.task == task && op.field == field) {
+				op.after = after;
+				return;
+			}
+		}
+		Operation<E> op = obtain(ATTRIBUTE, task);
+		op.field = field;
+		op.before = before;
+		op.after = after;
+		record(op);
+	}
+
+	/**
+	 * Stop recording changes until {@link #resume()} is called, used for changes that are not made by the user
+	 */
+	public void pause () {
+		paused++;
+	}
+
+	public void resume () {
+		paused--;
+	}
+
+	private boolean isRecording () {
+		return size > 0 && paused == 0;
+	}
+
+	private Operation<E> obtain (int type, ModelTask<E> task) {
+		Operation<E> op = operationPool.obtain();
+		op.type = type;
+		op.task = ref(task);
+		return op;
+	}
+
+	private ModelTask<E> ref (ModelTask<E> task) {
+		if (task != null)
+			task.historyRefs++;
+		return task;
+	}
+
+	private void unref (ModelTask<E> task) {
+		if (task == null)
+			return;
+		// task is no longer in the model and nothing else needs it
+		if (--task.historyRefs == 0 && task.getParent() == null && task != model.getRootNode() && !task.freed) {
+			model.free(task);
+		}
+	}
+
+	private void record (Operation<E> op) {
+		clear(redo);
+		if (depth > 0) {
+			transaction.add(op);
+		} else {
+			Array<Operation<E>> single = transactionPool.obtain();
+			single.add(op);
+			push(single);
+		}
+	}
+
+	private void push (Array<Operation<E>> transaction) {
+		undo.add(transaction);
+		while (undo.size > size) {
+			free(undo.removeIndex(0));
+		}
+	}
+
+	public boolean canUndo () {
+		return undo.size > 0 && depth == 0;
+	}
+
+	public boolean canRedo () {
+		return redo.size > 0 && depth == 0;
+	}
+
+	public boolean undo () {
+		if (!canUndo())
+			return false;
+		Array<Operation<E>> transaction = undo.pop();
+		pause();
+		try {
+			for (int i = transaction.size - 1; i >= 0; i--) {
+				undo(transaction.get(i));
+			}
+		} finally {
+			resume();
+		}
+		redo.add(transaction);
+		return true;
+	}
+
+	public boolean redo () {
+		if (!canRedo())
+			return false;
+		Array<Operation<E>> transaction = redo.pop();
+		pause();
+		try {
+			for (int i = 0; i < transaction.size; i++) {
+				redo(transaction.get(i));
+			}
+		} finally {
+			resume();
+		}
+		undo.add(transaction);
+		return true;
+	}
+
+	private void undo (Operation<E> op) {
+		switch (op.type) {
+		case ADD:
+			model.remove(op.task);
+			break;
+		case REMOVE:
+			model.insert(op.parent, op.task, op.index);
+			break;
+		case MOVE:
+			model.move(op.from, op.task, op.fromIndex);
+			break;
+		case ATTRIBUTE:
+			setAttribute(op.task, op.field, op.before);
+			break;
+		}
+	}
+
+	private void redo (Operation<E> op) {
+		switch (op.type) {
+		case ADD:
+			model.insert(op.parent, op.task, op.index);
+			break;
+		case REMOVE:
+			model.remove(op.task);
+			break;
+		case MOVE:
+			model.move(op.parent, op.task, op.index);
+			break;
+		case ATTRIBUTE:
+			setAttribute(op.task, op.field, op.after);
+			break;
+		}
+	}
+
+	private void setAttribute (ModelTask<E> task, Field field, Object value) {
+		try {
+			field.set(task.getTask(), value);
+		} catch (ReflectionException e) {
+			model.logger.error(TAG, "Failed to set " + field.getName() + " to " + value, e);
+		}
+		task.attributesChanged();
+	}
+
+	/**
+	 * Set max number of kept transactions, 0 disables the history
+	 */
+	public void setSize (int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("History size cannot be < 0, is " + size);
+		this.size = size;
+		while (undo.size > size) {
+			free(undo.removeIndex(0));
+		}
+		if (size == 0)
+			clear(redo);
+	}
+
+	public int getSize () {
+		return size;
+	}
+
+	/**
+	 * Drop all history, tasks kept alive only by the history are freed
+	 */
+	public void clear () {
+		clear(undo);
+		clear(redo);
+	}
+
+	private void clear (Array<Array<Operation<E>>> transactions) {
+		for (int i = 0; i < transactions.size; i++) {
+			free(transactions.get(i));
+		}
+		transactions.clear();
+	}
+
+	private void free (Array<Operation<E>> transaction) {
+		for (int i = 0; i < transaction.size; i++) {
+			Operation<E> op = transaction.get(i);
+			unref(op.task);
+			unref(op.parent);
+			unref(op.from);
+			operationPool.free(op);
+		}
+		transaction.clear();
+		transactionPool.free(transaction);
+	}
+
+	private static class Operation<E> implements Pool.Poolable {
+		int type;
+		ModelTask<E> task;
+		ModelTask<E> parent;
+		int index;
+		ModelTask<E> from;
+		int fromIndex;
+		Field field;
+		Object before;
+		Object after;
+
+		@Override public void reset () {
+			task = null;
+			parent = null;
+			from = null;
+			field = null;
+			before = null;
+			after = null;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Ring buffer of status changes of tasks in a {@link ModelTree}, so past state of the tree can be shown
+ * <p>
+ * Each event is tick of the tree, id of the {@link ModelTask}, previous and new status. Events are stored in primitive
+ * arrays allocated up front, recording does not allocate. When full, oldest events are overwritten.
+ */
+public class StatusTimeline {
+	private final static Task.Status[] STATUSES = Task.Status.values();
+
+	private int[] ticks;
+	private int[] ids;
+	private byte[] from;
+	private byte[] to;
+	// index of the oldest event
+	private int head;
+	private int size;
+
+	public StatusTimeline () {
+		this(4096);
+	}
+
+	/**
+	 * @param capacity max number of stored events
+	 */
+	public StatusTimeline (int capacity) {
+		setCapacity(capacity);
+	}
+
+	/**
+	 * Change the capacity, stored events are discarded
+	 */
+	public void setCapacity (int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be >= 1, is " + capacity);
+		ticks = new int[capacity];
+		ids = new int[capacity];
+		from = new byte[capacity];
+		to = new byte[capacity];
+		clear();
+	}
+
+	public int getCapacity () {
+		return ticks.length;
+	}
+
+	public void record (int tick, int id, Task.Status previous, Task.Status current) {
+		int index;
+		if (size < ticks.length) {
+			index = (head + size) % ticks.length;
+			size++;
+		} else {
+			// full, overwrite the oldest
+			index = head;
+			head = (head + 1) % ticks.length;
+		}
+		ticks[index] = tick;
+		ids[index] = id;
+		from[index] = (byte)(previous != null ? previous.ordinal() : Task.Status.FRESH.ordinal());
+		to[index] = (byte)current.ordinal();
+	}
+
+	/**
+	 * @return number of stored events
+	 */
+	public int size () {
+		return size;
+	}
+
+	private int index (int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("index " + i + " out of range, size " + size);
+		return (head + i) % ticks.length;
+	}
+
+	/**
+	 * @param i index of the event, 0 is the oldest
+	 */
+	public int getTick (int i) {
+		return ticks[index(i)];
+	}
+
+	public int getId (int i) {
+		return ids[index(i)];
+	}
+
+	public Task.Status getFrom (int i) {
+		return STATUSES[from[index(i)]];
+	}
+
+	public Task.Status getTo (int i) {
+		return STATUSES[to[index(i)]];
+	}
+
+	/**
+	 * @return tick of the oldest stored event, 0 if there are none
+	 */
+	public int getOldestTick () {
+		return size > 0 ? ticks[head] : 0;
+	}
+
+	/**
+	 * @return tick of the newest stored event, 0 if there are none
+	 */
+	public int getNewestTick () {
+		return size > 0 ? ticks[(head + size - 1) % ticks.length] : 0;
+	}
+
+	/**
+	 * Find status of each task at the end of given tick
+	 * <p>
+	 * Only tasks that have an event in the buffer up to that tick are in the map. Task that changed status for the
+	 * last time before the oldest stored event will be missing.
+	 *
+	 * @param tick tick to look at
+	 * @param out  cleared, filled with id to status ordinal
+	 * @return out
+	 */
+	public IntIntMap statusesAt (int tick, IntIntMap out) {
+		out.clear();
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) % ticks.length;
+			// ticks only go up
+			if (ticks[index] > tick)
+				break;
+			out.put(ids[index], to[index]);
+		}
+		return out;
+	}
+
+	/**
+	 * @return status of the task with given id at the end of given tick, null if not known
+	 */
+	public Task.Status statusAt (int id, int tick) {
+		for (int i = size - 1; i >= 0; i--) {
+			int index = (head + i) % ticks.length;
+			if (ticks[index] <= tick && ids[index] == id)
+				return STATUSES[to[index]];
+		}
+		return null;
+	}
+
+	public void clear () {
+		head = 0;
+		size = 0;
+	}
+
+	@Override public String toString () {
+		return "StatusTimeline{" +
+			"size=" + size +
+			", capacity=" + ticks.length +
+			", ticks=" + getOldestTick() + ".." + getNewestTick() +
+			'}';
+	}
+}
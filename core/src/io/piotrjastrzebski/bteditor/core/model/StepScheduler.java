@@ -0,0 +1,258 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Decides how many times a {@link ModelTree} is stepped each frame
+ * <p>
+ * Modes:
+ * <ul>
+ * <li>{@link Mode#FIXED_RATE} - single step every delay seconds</li>
+ * <li>{@link Mode#STEPS_PER_FRAME} - fixed number of steps each frame</li>
+ * <li>{@link Mode#TIME_BUDGET} - as many steps as fit in the budget each frame</li>
+ * </ul>
+ * Fast forward temporarily steps within the budget until a condition is met, regardless of the mode.
+ * <p>
+ * Nothing is stepped while a breakpoint of the model is hit, see {@link ModelTree#addBreakpoint(Breakpoint)}.
+ */
+public class StepScheduler {
+	public enum Mode {
+		FIXED_RATE, STEPS_PER_FRAME, TIME_BUDGET
+	}
+
+	// safety net, in case stepping is faster than the timer resolution
+	private final static int MAX_STEPS_PER_FRAME = 100000;
+	private final static Condition UNTIL_BREAKPOINT = new Condition() {
+		@Override public boolean isMet () {
+			return false;
+		}
+	};
+
+	private Mode mode = Mode.FIXED_RATE;
+	private float delay = 1;
+	private float timer;
+	private int stepsPerFrame = 1;
+	private long budgetNanos = 4000000;
+
+	private Condition fastForward;
+	private int fastForwardLeft;
+
+	private float windowTime;
+	private int windowSteps;
+	private float stepsPerSecond;
+	private long totalSteps;
+
+	/**
+	 * Step the model as the mode says, call once per frame
+	 *
+	 * @return number of steps made
+	 */
+	public int update (float delta, ModelTree<?> model) {
+		return update(delta, model, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Step the model as the mode says, time budget is lowered to given time if it is larger
+	 *
+	 * @param maxNanos share of the frame for this model, when the frame budget is shared by several models
+	 * @return number of steps made
+	 */
+	public int update (float delta, ModelTree<?> model, long maxNanos) {
+		long budget = Math.min(budgetNanos, maxNanos);
+		int steps = 0;
+		if (model.isBreakpointHit()) {
+			// we got where we wanted
+			fastForward = null;
+		} else if (fastForward != null) {
+			steps = fastForward(model, budget);
+		} else {
+			switch (mode) {
+			case FIXED_RATE:
+				if (delay < 0)
+					break;
+				timer += delta;
+				if (timer > delay) {
+					timer -= delay;
+					// dont try to catch up after a long frame
+					if (timer > delay)
+						timer = 0;
+					model.step();
+					steps = 1;
+				}
+				break;
+			case STEPS_PER_FRAME:
+				for (; steps < stepsPerFrame && model.isValid() && !model.isBreakpointHit(); steps++) {
+					model.step();
+				}
+				break;
+			case TIME_BUDGET:
+				steps = stepWithin(model, budget, MAX_STEPS_PER_FRAME);
+				break;
+			}
+		}
+		record(delta, steps);
+		return steps;
+	}
+
+	private int fastForward (ModelTree<?> model, long budget) {
+		long start = TimeUtils.nanoTime();
+		int steps = 0;
+		while (model.isValid() && steps < MAX_STEPS_PER_FRAME) {
+			if (fastForward.isMet() || fastForwardLeft == 0 || model.isBreakpointHit()) {
+				fastForward = null;
+				break;
+			}
+			model.step();
+			steps++;
+			if (fastForwardLeft > 0)
+				fastForwardLeft--;
+			if (TimeUtils.nanoTime() - start >= budget)
+				break;
+		}
+		return steps;
+	}
+
+	private static int stepWithin (ModelTree<?> model, long nanos, int max) {
+		long start = TimeUtils.nanoTime();
+		int steps = 0;
+		while (steps < max && model.isValid() && !model.isBreakpointHit()) {
+			model.step();
+			steps++;
+			if (TimeUtils.nanoTime() - start >= nanos)
+				break;
+		}
+		return steps;
+	}
+
+	/**
+	 * Call instead of {@link #update(float, ModelTree)} in frames the model is not stepped at all, ie when paused
+	 */
+	public void idle () {
+		stepsPerSecond = 0;
+		windowSteps = 0;
+		windowTime = 0;
+	}
+
+	/**
+	 * @return if this scheduler steps within the time budget this frame
+	 */
+	public boolean usesBudget () {
+		return mode == Mode.TIME_BUDGET || fastForward != null;
+	}
+
+	private void record (float delta, int steps) {
+		totalSteps += steps;
+		windowSteps += steps;
+		windowTime += delta;
+		if (windowTime >= 1) {
+			stepsPerSecond = windowSteps / windowTime;
+			windowSteps = 0;
+			windowTime = 0;
+		}
+	}
+
+	/**
+	 * Single step every delay seconds
+	 *
+	 * @param delay delay between steps in seconds, negative to not step at all
+	 */
+	public void setFixedRate (float delay) {
+		mode = Mode.FIXED_RATE;
+		this.delay = delay;
+	}
+
+	/**
+	 * Fixed number of steps each frame
+	 */
+	public void setStepsPerFrame (int steps) {
+		if (steps < 0)
+			throw new IllegalArgumentException("Steps must be >= 0, is " + steps);
+		mode = Mode.STEPS_PER_FRAME;
+		stepsPerFrame = steps;
+	}
+
+	/**
+	 * As many steps as fit in given time each frame, also used for fast forward
+	 */
+	public void setTimeBudget (float millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("Budget must be > 0, is " + millis);
+		mode = Mode.TIME_BUDGET;
+		budgetNanos = (long)(millis * 1000000);
+	}
+
+	/**
+	 * Step as fast as the time budget allows until the condition is met, then go back to current mode
+	 *
+	 * @param until    checked before each step
+	 * @param maxSteps max number of steps, negative for no limit
+	 */
+	public void fastForward (Condition until, int maxSteps) {
+		if (until == null)
+			throw new IllegalArgumentException("Condition cannot be null!");
+		fastForward = until;
+		fastForwardLeft = maxSteps;
+	}
+
+	/**
+	 * Step as fast as the time budget allows until a breakpoint hits, then go back to current mode
+	 *
+	 * @param maxSteps max number of steps, negative for no limit
+	 */
+	public void fastForward (int maxSteps) {
+		fastForward(UNTIL_BREAKPOINT, maxSteps);
+	}
+
+	/**
+	 * Stop fast forward, if there is one
+	 */
+	public void cancelFastForward () {
+		fastForward = null;
+	}
+
+	public boolean isFastForwarding () {
+		return fastForward != null;
+	}
+
+	public Mode getMode () {
+		return mode;
+	}
+
+	public float getDelay () {
+		return delay;
+	}
+
+	public int getStepsPerFrame () {
+		return stepsPerFrame;
+	}
+
+	public float getTimeBudget () {
+		return budgetNanos / 1000000f;
+	}
+
+	/**
+	 * @return steps per second over last full second
+	 */
+	public float getStepsPerSecond () {
+		return stepsPerSecond;
+	}
+
+	public long getTotalSteps () {
+		return totalSteps;
+	}
+
+	@Override public String toString () {
+		return "StepScheduler{" +
+			"mode=" + mode +
+			", stepsPerSecond=" + stepsPerSecond +
+			", fastForward=" + (fastForward != null) +
+			'}';
+	}
+
+	public interface Condition {
+		/**
+		 * @return true to stop fast forward
+		 */
+		boolean isMet ();
+	}
+}
@@ -0,0 +1,199 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Checks if subtree files of {@link com.badlogic.gdx.ai.btree.decorator.Include}s exist, without blocking the caller
+ * <p>
+ * Results are cached for a time, checks run on a background thread. Results are delivered to {@link Listener}s from
+ * {@link #update()}, that should be called on the ui thread. All methods besides the check itself are not thread safe.
+ */
+public class SubtreePathResolver {
+	public final static int PENDING = 0;
+	public final static int EXISTS = 1;
+	public final static int MISSING = 2;
+
+	private ObjectMap<String, Entry> pathToEntry = new ObjectMap<>();
+	private ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+	private SnapshotArray<Listener> listeners = new SnapshotArray<>(Listener.class);
+	private Executor executor;
+	private ExecutorService ownExecutor;
+	private PathChecker checker;
+	private long ttl = 5000;
+
+	public SubtreePathResolver () {
+		this(null, null);
+	}
+
+	/**
+	 * @param executor runs the checks, null for a single background thread
+	 * @param checker  does the actual check, null for internal files
+	 */
+	public SubtreePathResolver (Executor executor, PathChecker checker) {
+		this.executor = executor;
+		this.checker = checker != null ? checker : new PathChecker() {
+			@Override public boolean exists (String path) {
+				FileHandle fh = Gdx.files.internal(path);
+				return fh.exists() && !fh.isDirectory();
+			}
+		};
+	}
+
+	/**
+	 * Get cached state of the path, check is started if it is unknown or too old
+	 *
+	 * Old state is returned while it is being refreshed
+	 *
+	 * @return {@link #PENDING}, {@link #EXISTS} or {@link #MISSING}
+	 */
+	public int check (String path) {
+		if (path == null || path.length() == 0)
+			return MISSING;
+		Entry entry = pathToEntry.get(path);
+		if (entry == null) {
+			entry = new Entry();
+			pathToEntry.put(path, entry);
+			submit(path, entry);
+		} else if (!entry.checking && TimeUtils.timeSinceMillis(entry.checkedAt) > ttl) {
+			submit(path, entry);
+		}
+		return entry.state;
+	}
+
+	private void submit (final String path, Entry entry) {
+		entry.checking = true;
+		if (executor == null) {
+			executor = ownExecutor = createExecutor();
+		}
+		executor.execute(new Runnable() {
+			@Override public void run () {
+				boolean exists;
+				try {
+					exists = checker.exists(path);
+				} catch (RuntimeException e) {
+					exists = false;
+				}
+				results.add(new Result(path, exists));
+			}
+		});
+	}
+
+	private static ExecutorService createExecutor () {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override public Thread newThread (Runnable r) {
+				Thread thread = new Thread(r, "SubtreePathResolver");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Deliver finished checks to listeners, call on the ui thread
+	 *
+	 * @return number of delivered results
+	 */
+	public int update () {
+		int delivered = 0;
+		Result result;
+		while ((result = results.poll()) != null) {
+			Entry entry = pathToEntry.get(result.path);
+			if (entry == null) {
+				// cleared while checking
+				continue;
+			}
+			int state = result.exists ? EXISTS : MISSING;
+			boolean changed = entry.state != state;
+			entry.state = state;
+			entry.checking = false;
+			entry.checkedAt = TimeUtils.millis();
+			delivered++;
+			if (!changed)
+				continue;
+			Listener[] items = listeners.begin();
+			for (int i = 0, n = listeners.size; i < n; i++) {
+				items[i].resolved(result.path, result.exists);
+			}
+			listeners.end();
+		}
+		return delivered;
+	}
+
+	public void addListener (Listener listener) {
+		if (!listeners.contains(listener, true))
+			listeners.add(listener);
+	}
+
+	public void removeListener (Listener listener) {
+		listeners.removeValue(listener, true);
+	}
+
+	/**
+	 * @param ttl time in millis for which results are considered fresh
+	 */
+	public void setTTL (long ttl) {
+		this.ttl = ttl;
+	}
+
+	public long getTTL () {
+		return ttl;
+	}
+
+	/**
+	 * Forget all cached results
+	 */
+	public void clear () {
+		pathToEntry.clear();
+	}
+
+	/**
+	 * Stop the background thread, if we created one
+	 */
+	public void dispose () {
+		if (ownExecutor != null) {
+			ownExecutor.shutdownNow();
+			ownExecutor = null;
+			executor = null;
+		}
+	}
+
+	public interface Listener {
+		/**
+		 * Called when state of the path changed
+		 */
+		void resolved (String path, boolean exists);
+	}
+
+	public interface PathChecker {
+		/**
+		 * Called on background thread, may block
+		 */
+		boolean exists (String path);
+	}
+
+	private static class Entry {
+		int state = PENDING;
+		boolean checking;
+		long checkedAt;
+	}
+
+	private static class Result {
+		final String path;
+		final boolean exists;
+
+		public Result (String path, boolean exists) {
+			this.path = path;
+			this.exists = exists;
+		}
+	}
+}
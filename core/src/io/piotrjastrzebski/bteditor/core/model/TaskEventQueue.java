@@ -0,0 +1,104 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock free queue of task events, for a single producer thread and a single consumer thread
+ * <p>
+ * Events are stored in preallocated arrays, each is a task and three ints. Producer publishes with an ordered write of
+ * the tail, consumer frees space with an ordered write of the head, neither waits for the other.
+ *
+ * @param <E> type of the blackboard object
+ */
+public class TaskEventQueue<E> {
+	private final Task<E>[] tasks;
+	private final int[] as;
+	private final int[] bs;
+	private final int[] cs;
+	private final int mask;
+	// next event to read, written by the consumer
+	private final AtomicLong head = new AtomicLong();
+	// next event to write, written by the producer
+	private final AtomicLong tail = new AtomicLong();
+	// last seen values of the other side, so we dont touch shared counters on every event
+	private long producerHead;
+	private long consumerTail;
+
+	/**
+	 * @param capacity max number of events, rounded up to power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public TaskEventQueue (int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be >= 1, is " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		tasks = (Task<E>[])new Task<?>[size];
+		as = new int[size];
+		bs = new int[size];
+		cs = new int[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Add an event, producer thread only
+	 *
+	 * @return false if the queue is full
+	 */
+	public boolean offer (Task<E> task, int a, int b, int c) {
+		long t = tail.get();
+		if (t - producerHead > mask) {
+			producerHead = head.get();
+			if (t - producerHead > mask)
+				return false;
+		}
+		int i = (int)t & mask;
+		tasks[i] = task;
+		as[i] = a;
+		bs[i] = b;
+		cs[i] = c;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Pass all available events to the handler, consumer thread only
+	 *
+	 * @return number of events handled
+	 */
+	public int drain (Handler<E> handler) {
+		long h = head.get();
+		if (h >= consumerTail)
+			consumerTail = tail.get();
+		int count = 0;
+		while (h < consumerTail) {
+			int i = (int)h & mask;
+			Task<E> task = tasks[i];
+			// dont keep removed tasks around
+			tasks[i] = null;
+			handler.event(task, as[i], bs[i], cs[i]);
+			// free the slot right away, producer may be waiting for it
+			head.lazySet(++h);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of events in the queue, approximate if called while the other side is running
+	 */
+	public int size () {
+		return (int)(tail.get() - head.get());
+	}
+
+	public int getCapacity () {
+		return mask + 1;
+	}
+
+	public interface Handler<E> {
+		void event (Task<E> task, int a, int b, int c);
+	}
+}
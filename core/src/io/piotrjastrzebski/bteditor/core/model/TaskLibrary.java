@@ -8,6 +8,8 @@ import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Maps Task class to archetype, used by model to get new instances of tasks to add them to the tree
  *
@@ -15,6 +17,8 @@ import com.badlogic.gdx.utils.reflect.ReflectionException;
  */
 public class TaskLibrary<E> {
 	private final static String TAG = TaskLibrary.class.getSimpleName();
+	// shared by all libraries, reflection data doesnt depend on the blackboard
+	private final static ConcurrentHashMap<Class<?>, TaskMetadata> classToMetadata = new ConcurrentHashMap<>();
 
 	private ObjectMap<Class<? extends Task>, Task<E>> classToInstance;
 	private Injector<E> injector;
@@ -24,19 +28,34 @@ public class TaskLibrary<E> {
 	}
 
 	/**
-	 * @param aClass type of {@link Task} to add, will be instantiated via reflection
+	 * @param aClass type of {@link Task} to add, will be instantiated via reflection when it is first needed
 	 */
 	public void add (Class<? extends Task> aClass) {
 		if (aClass == null)
 			throw new IllegalArgumentException("Task class  cannot be null!");
 		if (classToInstance.containsKey(aClass)) return;
+		// so we dont scan the class on first edit or save
+		getMetadata(aClass);
+		classToInstance.put(aClass, null);
+	}
+
+	/**
+	 * @return archetype of given class, created if it was added but not created yet
+	 */
+	private Task<E> archetype (Class<? extends Task> aClass) {
+		Task<E> arch = classToInstance.get(aClass, null);
+		if (arch != null || !classToInstance.containsKey(aClass))
+			return arch;
 		try {
-			Task<E> task = ClassReflection.newInstance(aClass);
-			if (injector != null) injector.inject(task);
-			classToInstance.put(aClass, task);
+			arch = ClassReflection.newInstance(aClass);
+			if (injector != null) injector.inject(arch);
+			classToInstance.put(aClass, arch);
 		} catch (ReflectionException e) {
 			Gdx.app.error(TAG, "Failed to create task of type " + aClass, e);
+			// dont try again
+			classToInstance.remove(aClass);
 		}
+		return arch;
 	}
 
 	/**
@@ -45,25 +64,26 @@ public class TaskLibrary<E> {
 	public void add (Task<E> task) {
 		if (task == null)
 			throw new IllegalArgumentException("Task cannot be null!");
+		getMetadata(task.getClass());
 		classToInstance.put(task.getClass(), task);
 	}
 
 	/**
 	 * @param aClass type of {@link Task}
-	 * @return cloned task, via {@link Task#cloneTask()} or null
+	 * @return cloned task, via {@link TaskCopier} or null
 	 */
 	public Task<E> get (Class<? extends Task> aClass) {
 		if (aClass == null)
 			throw new IllegalArgumentException("Task class cannot be null!");
-		Task<E> arch = classToInstance.get(aClass, null);
 		if (aClass == Include.class) {
 			// lazy by default, so bt doesnt explode
 			Include<E> include = new Include<>("", true);
 			if (injector != null) injector.inject(include);
 			return include;
 		}
+		Task<E> arch = archetype(aClass);
 		if (arch != null)
-			return arch.cloneTask();
+			return TaskCopier.copyTask(arch);
 		return null;
 	}
 
@@ -74,7 +94,7 @@ public class TaskLibrary<E> {
 	public Task<E> getArchetype (Class<? extends Task> aClass) {
 		if (aClass == null)
 			throw new IllegalArgumentException("Task class cannot be null!");
-		return classToInstance.get(aClass, null);
+		return archetype(aClass);
 	}
 
 	/**
@@ -104,6 +124,28 @@ public class TaskLibrary<E> {
 		classToInstance.clear();
 	}
 
+	/**
+	 * Get reflection data for given {@link Task} class, it is created on first use and shared afterwards
+	 * <p>
+	 * Safe to call from any thread
+	 *
+	 * @param aClass type of {@link Task}
+	 * @return metadata of the class
+	 */
+	public static TaskMetadata getMetadata (Class<?> aClass) {
+		if (aClass == null)
+			throw new IllegalArgumentException("Task class cannot be null!");
+		TaskMetadata metadata = classToMetadata.get(aClass);
+		if (metadata == null) {
+			metadata = new TaskMetadata(aClass);
+			// another thread may have been faster, use its metadata
+			TaskMetadata existing = classToMetadata.putIfAbsent(aClass, metadata);
+			if (existing != null)
+				metadata = existing;
+		}
+		return metadata;
+	}
+
 	public void initFrom (BehaviorTree<E> bt) {
 		addFromTask(bt.getChild(0));
 	}
@@ -0,0 +1,203 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
+import com.badlogic.gdx.ai.btree.annotation.TaskConstraint;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.ai.utils.random.Distribution;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.reflect.Annotation;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+/**
+ * Reflection data of a {@link Task} class, {@link TaskAttribute} fields and child constraints
+ * <p>
+ * Created once per class, see {@link TaskLibrary#getMetadata(Class)}. Immutable, safe to share between threads
+ */
+public class TaskMetadata {
+	private final Class<?> type;
+	private final int minChildren;
+	private final int maxChildren;
+	private final Attribute[] attributes;
+	private final Attribute[] required;
+	private final TaskCopier copier;
+
+	TaskMetadata (Class<?> type) {
+		this.type = type;
+		TaskConstraint constraint = findConstraint(type);
+		if (ClassReflection.isAssignableFrom(Include.class, type)) {
+			// children of includes come from the subtree, we dont add any
+			minChildren = 0;
+			maxChildren = 1;
+		} else if (constraint != null) {
+			minChildren = constraint.minChildren();
+			maxChildren = constraint.maxChildren();
+		} else {
+			minChildren = 0;
+			maxChildren = Integer.MAX_VALUE;
+		}
+		Array<Attribute> attributes = new Array<>(Attribute.class);
+		Array<Attribute> required = new Array<>(Attribute.class);
+		for (Field field : ClassReflection.getFields(type)) {
+			Annotation a = field.getDeclaredAnnotation(TaskAttribute.class);
+			if (a == null)
+				continue;
+			Attribute attribute = new Attribute(field, a.getAnnotation(TaskAttribute.class));
+			attributes.add(attribute);
+			if (attribute.required)
+				required.add(attribute);
+		}
+		this.attributes = attributes.toArray();
+		this.required = required.toArray();
+		copier = new TaskCopier(type, this.attributes);
+	}
+
+	private static TaskConstraint findConstraint (Class<?> type) {
+		// closest one wins, same as in the parser
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			Annotation a = ClassReflection.getDeclaredAnnotation(c, TaskConstraint.class);
+			if (a != null)
+				return a.getAnnotation(TaskConstraint.class);
+		}
+		return null;
+	}
+
+	public Class<?> getType () {
+		return type;
+	}
+
+	public int getMinChildren () {
+		return minChildren;
+	}
+
+	public int getMaxChildren () {
+		return maxChildren;
+	}
+
+	/**
+	 * @return if task of this type can have given amount of children
+	 */
+	public boolean isChildCountValid (int count) {
+		return minChildren <= count && count <= maxChildren;
+	}
+
+	/**
+	 * @return all {@link TaskAttribute}s in declaration order, do not modify
+	 */
+	public Attribute[] getAttributes () {
+		return attributes;
+	}
+
+	/**
+	 * @return {@link TaskAttribute}s that are required, do not modify
+	 */
+	public Attribute[] getRequired () {
+		return required;
+	}
+
+	/**
+	 * @return copier for tasks of this type
+	 */
+	public TaskCopier getCopier () {
+		return copier;
+	}
+
+	/**
+	 * @return attribute with given name, as used in tree files, or null
+	 */
+	public Attribute getAttribute (String name) {
+		for (Attribute attribute : attributes) {
+			if (attribute.name.equals(name))
+				return attribute;
+		}
+		return null;
+	}
+
+	@Override public String toString () {
+		return "TaskMetadata{" +
+			"type=" + type.getSimpleName() +
+			", children=" + minChildren + ".." + (maxChildren == Integer.MAX_VALUE ? "oo" : maxChildren) +
+			", attributes=" + attributes.length +
+			'}';
+	}
+
+	/**
+	 * Single {@link TaskAttribute} field, with accessor that is ready to use
+	 */
+	public static class Attribute {
+		public final static int OTHER = 0;
+		public final static int STRING = 1;
+		public final static int ENUM = 2;
+		public final static int DISTRIBUTION = 3;
+
+		private final Field field;
+		private final String name;
+		private final boolean required;
+		private final int kind;
+
+		Attribute (Field field, TaskAttribute annotation) {
+			this.field = field;
+			field.setAccessible(true);
+			// prefer name from annotation if there is one
+			String name = annotation.name();
+			if (name == null || name.length() == 0) {
+				name = field.getName();
+			}
+			this.name = name;
+			this.required = annotation.required();
+			Class<?> type = field.getType();
+			if (type == String.class) {
+				kind = STRING;
+			} else if (type.isEnum()) {
+				kind = ENUM;
+			} else if (ClassReflection.isAssignableFrom(Distribution.class, type)) {
+				kind = DISTRIBUTION;
+			} else {
+				kind = OTHER;
+			}
+		}
+
+		public Object get (Task<?> task) throws ReflectionException {
+			return field.get(task);
+		}
+
+		public void set (Task<?> task, Object value) throws ReflectionException {
+			field.set(task, value);
+		}
+
+		/**
+		 * @return name used in tree files
+		 */
+		public String getName () {
+			return name;
+		}
+
+		public Field getField () {
+			return field;
+		}
+
+		public Class<?> getType () {
+			return field.getType();
+		}
+
+		public boolean isRequired () {
+			return required;
+		}
+
+		/**
+		 * @return one of {@link #STRING}, {@link #ENUM}, {@link #DISTRIBUTION} or {@link #OTHER}
+		 */
+		public int getKind () {
+			return kind;
+		}
+
+		@Override public String toString () {
+			return "Attribute{" +
+				"name='" + name + '\'' +
+				", required=" + required +
+				'}';
+		}
+	}
+}
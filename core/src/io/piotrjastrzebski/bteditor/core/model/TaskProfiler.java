@@ -0,0 +1,241 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Measures time spent in each task of a {@link ModelTree}, see {@link ModelTree#setProfiler(TaskProfiler)}
+ * <p>
+ * Sits on the status listener path, tasks are not wrapped. Time between a status update and the previous one in the
+ * same step, or start of the step, is counted for the updated task. Time spent in the listener itself, by the model
+ * and its listeners, is not counted. For leaves that is their execute time, for
+ * branches time spent in them after their last child finished. Time of a subtree is {@link #getTotalNanos(ModelTask)}.
+ * <p>
+ * Counters are primitive arrays indexed by {@link ModelTask#getId()}.
+ */
+public class TaskProfiler {
+	private long[] nanos = new long[64];
+	private int[] calls = new int[64];
+	private int[] succeeded = new int[64];
+	private int[] failed = new int[64];
+	private int[] running = new int[64];
+	private long last;
+	// start of current listener call, time after it is not spent in the tree
+	private long paused;
+	private boolean stepping;
+	private int steps;
+
+	void beginStep () {
+		stepping = true;
+		last = System.nanoTime();
+	}
+
+	void endStep () {
+		stepping = false;
+		steps++;
+	}
+
+	/**
+	 * Stop the clock at the start of the status listener, editor work that follows is not counted
+	 */
+	void pause () {
+		if (stepping)
+			paused = System.nanoTime();
+	}
+
+	/**
+	 * Count time until {@link #pause()} for the task
+	 */
+	void record (int id, Task.Status status) {
+		// events outside of step, ie cancel from an edit, are not interesting
+		if (!stepping)
+			return;
+		if (id >= nanos.length)
+			grow(id + 1);
+		nanos[id] += paused - last;
+		calls[id]++;
+		switch (status) {
+		case SUCCEEDED:
+			succeeded[id]++;
+			break;
+		case FAILED:
+			failed[id]++;
+			break;
+		case RUNNING:
+			running[id]++;
+			break;
+		}
+	}
+
+	/**
+	 * Start the clock again at the end of the status listener
+	 */
+	void resume () {
+		if (stepping)
+			last = System.nanoTime();
+	}
+
+	private void grow (int minSize) {
+		int size = Math.max(minSize, nanos.length * 2);
+		nanos = Arrays.copyOf(nanos, size);
+		calls = Arrays.copyOf(calls, size);
+		succeeded = Arrays.copyOf(succeeded, size);
+		failed = Arrays.copyOf(failed, size);
+		running = Arrays.copyOf(running, size);
+	}
+
+	/**
+	 * @return time counted for the task itself, without children, in nanoseconds
+	 */
+	public long getNanos (ModelTask<?> task) {
+		int id = task.getId();
+		return id < nanos.length ? nanos[id] : 0;
+	}
+
+	/**
+	 * @return time counted for the task and all its children, in nanoseconds
+	 */
+	public long getTotalNanos (ModelTask<?> task) {
+		long total = getNanos(task);
+		// tasks that run are materialized, no need to touch the rest
+		Array<? extends ModelTask<?>> children = task.getMaterializedChildren();
+		for (int i = 0; i < children.size; i++) {
+			total += getTotalNanos(children.get(i));
+		}
+		return total;
+	}
+
+	/**
+	 * @return number of status updates of the task, roughly number of times it was executed
+	 */
+	public int getCalls (ModelTask<?> task) {
+		int id = task.getId();
+		return id < calls.length ? calls[id] : 0;
+	}
+
+	/**
+	 * @return average time of a single call, in nanoseconds
+	 */
+	public long getAverageNanos (ModelTask<?> task) {
+		int calls = getCalls(task);
+		return calls > 0 ? getNanos(task) / calls : 0;
+	}
+
+	/**
+	 * @param status one of {@link Task.Status#SUCCEEDED}, {@link Task.Status#FAILED} or {@link Task.Status#RUNNING}
+	 * @return fraction of calls that ended with given status
+	 */
+	public float getRatio (ModelTask<?> task, Task.Status status) {
+		int id = task.getId();
+		if (id >= calls.length || calls[id] == 0)
+			return 0;
+		int count;
+		switch (status) {
+		case SUCCEEDED:
+			count = succeeded[id];
+			break;
+		case FAILED:
+			count = failed[id];
+			break;
+		case RUNNING:
+			count = running[id];
+			break;
+		default:
+			return 0;
+		}
+		return count / (float)calls[id];
+	}
+
+	/**
+	 * @return number of steps profiled
+	 */
+	public int getSteps () {
+		return steps;
+	}
+
+	/**
+	 * Find tasks with most time spent in them, children excluded
+	 *
+	 * @param model model that was profiled
+	 * @param count max number of tasks
+	 * @param out   cleared, filled with tasks, hottest first
+	 * @return out
+	 */
+	public <E> Array<ModelTask<E>> getHottest (ModelTree<E> model, int count, Array<ModelTask<E>> out) {
+		out.clear();
+		if (model.getRootNode() != null)
+			collect(model.getRootNode(), out);
+		out.sort(new Comparator<ModelTask<E>>() {
+			@Override public int compare (ModelTask<E> o1, ModelTask<E> o2) {
+				return Long.compare(getNanos(o2), getNanos(o1));
+			}
+		});
+		out.truncate(count);
+		return out;
+	}
+
+	private <E> void collect (ModelTask<E> task, Array<ModelTask<E>> out) {
+		if (getCalls(task) > 0)
+			out.add(task);
+		Array<ModelTask<E>> children = task.getMaterializedChildren();
+		for (int i = 0; i < children.size; i++) {
+			collect(children.get(i), out);
+		}
+	}
+
+	/**
+	 * @return report of tasks with most time spent in them
+	 */
+	public <E> String report (ModelTree<E> model, int count) {
+		Array<ModelTask<E>> hottest = getHottest(model, count, new Array<ModelTask<E>>());
+		StringBuilder sb = new StringBuilder("Hottest tasks in ").append(steps).append(" steps:");
+		for (int i = 0; i < hottest.size; i++) {
+			ModelTask<E> task = hottest.get(i);
+			sb.append("\n").append(i + 1).append(". ");
+			append(sb, task);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Append short stats of the task, ie {@code Walk 12.5us x40 S50% F0% R50%}
+	 */
+	public void append (StringBuilder sb, ModelTask<?> task) {
+		sb.append(task.getName()).append(' ');
+		appendStats(sb, task);
+	}
+
+	/**
+	 * Append stats of the task without its name
+	 */
+	public void appendStats (StringBuilder sb, ModelTask<?> task) {
+		long average = getAverageNanos(task);
+		// single decimal is plenty
+		sb.append(average / 1000).append('.').append(average / 100 % 10).append("us");
+		sb.append(" x").append(getCalls(task));
+		sb.append(" S").append(Math.round(getRatio(task, Task.Status.SUCCEEDED) * 100)).append('%');
+		sb.append(" F").append(Math.round(getRatio(task, Task.Status.FAILED) * 100)).append('%');
+		sb.append(" R").append(Math.round(getRatio(task, Task.Status.RUNNING) * 100)).append('%');
+	}
+
+	/**
+	 * Reset all counters
+	 */
+	public void clear () {
+		Arrays.fill(nanos, 0);
+		Arrays.fill(calls, 0);
+		Arrays.fill(succeeded, 0);
+		Arrays.fill(failed, 0);
+		Arrays.fill(running, 0);
+		steps = 0;
+	}
+
+	@Override public String toString () {
+		return "TaskProfiler{" +
+			"steps=" + steps +
+			'}';
+	}
+}
@@ -0,0 +1,317 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs a tree for many agents at once, without any ui, for tests and regression checks
+ * <p>
+ * Each agent gets its own copy of the template tree. Agents are split between threads of a {@link ForkJoinPool} and
+ * stepped as fast as possible. Result has counts of statuses each task changed to, summed over all agents.
+ * <p>
+ * Template is copied once when the simulator is created, later changes of the template are not simulated.
+ * <p>
+ * Tasks and blackboards must not share mutable state between agents. Lazy includes are loaded by each agent on a worker
+ * thread, so the {@link com.badlogic.gdx.ai.btree.utils.BehaviorTreeLibrary} they use must be thread safe, which
+ * {@link io.piotrjastrzebski.bteditor.core.CachedBehaviorTreeLibrary} is not. Load included trees into the template
+ * before simulating such trees.
+ *
+ * @param <E> type of the blackboard object
+ */
+public class TreeSimulator<E> {
+	private final static Task.Status[] STATUSES = Task.Status.values();
+
+	// private copy of the template, agents copy this, so the template may change while we run
+	private final Task<E> snapshot;
+	// pre order, guard before children, same order as in copies
+	private final Array<Task<E>> snapshotTasks = new Array<>();
+	// same as above, with template tasks where the template has the same structure, for results
+	private final Array<Task<E>> templateTasks = new Array<>();
+	private ForkJoinPool pool;
+	private int batchSize = 16;
+
+	/**
+	 * @param template root task of the tree to run, it is not modified
+	 */
+	public TreeSimulator (Task<E> template) {
+		this(template, null);
+	}
+
+	/**
+	 * @param model valid model, its tree is used as template
+	 */
+	public TreeSimulator (ModelTree<E> model) {
+		this(templateOf(model), model);
+	}
+
+	private TreeSimulator (Task<E> template, ModelTree<E> model) {
+		if (template == null)
+			throw new IllegalArgumentException("Template cannot be null!");
+		// tree of the model may be stepped in background while we copy it
+		if (model != null)
+			model.beginEdit();
+		try {
+			snapshot = TaskCopier.copyTask(template);
+			collect(snapshot, snapshotTasks);
+			templateTasks.addAll(snapshotTasks);
+			match(template, snapshot, templateTasks, 0);
+		} finally {
+			if (model != null)
+				model.endEdit();
+		}
+	}
+
+	private static <E> Task<E> templateOf (ModelTree<E> model) {
+		if (model.getRootNode() == null)
+			throw new IllegalArgumentException("Model has no tree!");
+		if (!model.validate())
+			throw new IllegalArgumentException("Model is not valid!");
+		return model.getRootNode().getTask();
+	}
+
+	private static <E> void collect (Task<E> task, Array<Task<E>> out) {
+		out.add(task);
+		if (task.getGuard() != null)
+			collect(task.getGuard(), out);
+		for (int i = 0; i < task.getChildCount(); i++) {
+			collect(task.getChild(i), out);
+		}
+	}
+
+	/**
+	 * Replace copies with their template tasks, where the template has the same structure as the copy
+	 *
+	 * @return index of next task after the copy and its children
+	 */
+	private static <E> int match (Task<E> task, Task<E> copy, Array<Task<E>> tasks, int index) {
+		tasks.set(index, task);
+		int next = index + 1;
+		Task<E> guard = copy.getGuard();
+		if (guard != null) {
+			next = task.getGuard() != null ? match(task.getGuard(), guard, tasks, next) : next + count(guard);
+		}
+		// ie include that was loaded in the template
+		boolean same = task.getChildCount() == copy.getChildCount();
+		for (int i = 0; i < copy.getChildCount(); i++) {
+			next = same ? match(task.getChild(i), copy.getChild(i), tasks, next) : next + count(copy.getChild(i));
+		}
+		return next;
+	}
+
+	private static int count (Task<?> task) {
+		int count = 1;
+		if (task.getGuard() != null)
+			count += count(task.getGuard());
+		for (int i = 0; i < task.getChildCount(); i++) {
+			count += count(task.getChild(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Step a copy of the tree for each agent, blocks until all are done
+	 *
+	 * @param agents blackboard objects, one tree per agent
+	 * @param ticks  number of steps for each tree
+	 */
+	public Result<E> run (Array<E> agents, int ticks) {
+		if (ticks < 0)
+			throw new IllegalArgumentException("Ticks must be >= 0, is " + ticks);
+		long start = TimeUtils.nanoTime();
+		long[][] counts;
+		if (agents.size == 0) {
+			counts = new long[snapshotTasks.size][STATUSES.length];
+		} else {
+			ForkJoinPool pool = this.pool != null ? this.pool : new ForkJoinPool();
+			try {
+				counts = pool.invoke(new Batch(agents, 0, agents.size, ticks));
+			} finally {
+				if (pool != this.pool)
+					pool.shutdown();
+			}
+		}
+		return new Result<>(templateTasks, counts, agents.size, ticks, TimeUtils.nanoTime() - start);
+	}
+
+	/**
+	 * Called on worker threads
+	 */
+	private long[][] simulate (E agent, int ticks, long[][] counts) {
+		Task<E> root = TaskCopier.copyTask(snapshot);
+		Array<Task<E>> tasks = new Array<>(snapshotTasks.size);
+		collect(root, tasks);
+		final IdentityMap<Task<E>, long[]> taskToCounts = new IdentityMap<>(tasks.size);
+		for (int i = 0; i < tasks.size; i++) {
+			taskToCounts.put(tasks.get(i), counts[i]);
+		}
+		BehaviorTree<E> tree = new BehaviorTree<>(root, agent);
+		tree.addListener(new BehaviorTree.Listener<E>() {
+			@Override public void statusUpdated (Task<E> task, Task.Status previousStatus) {
+				long[] taskCounts = taskToCounts.get(task);
+				// may be a task we dont know about, ie from lazy include
+				if (taskCounts != null)
+					taskCounts[task.getStatus().ordinal()]++;
+			}
+
+			@Override public void childAdded (Task<E> task, int index) {}
+		});
+		for (int i = 0; i < ticks; i++) {
+			tree.step();
+		}
+		return counts;
+	}
+
+	/**
+	 * @param pool pool to run agents on, null to create one for each run
+	 */
+	public void setPool (ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @param batchSize max number of agents run by a single fork join task
+	 */
+	public void setBatchSize (int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be >= 1, is " + batchSize);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return number of tasks in the template, including guards
+	 */
+	public int getTaskCount () {
+		return snapshotTasks.size;
+	}
+
+	// never serialized
+	@SuppressWarnings("serial")
+	private class Batch extends RecursiveTask<long[][]> {
+		private final Array<E> agents;
+		private final int from;
+		private final int to;
+		private final int ticks;
+
+		public Batch (Array<E> agents, int from, int to, int ticks) {
+			this.agents = agents;
+			this.from = from;
+			this.to = to;
+			this.ticks = ticks;
+		}
+
+		@Override protected long[][] compute () {
+			if (to - from <= batchSize) {
+				long[][] counts = new long[snapshotTasks.size][STATUSES.length];
+				for (int i = from; i < to; i++) {
+					simulate(agents.get(i), ticks, counts);
+				}
+				return counts;
+			}
+			int mid = (from + to) >>> 1;
+			Batch left = new Batch(agents, from, mid, ticks);
+			left.fork();
+			long[][] counts = new Batch(agents, mid, to, ticks).compute();
+			long[][] other = left.join();
+			for (int i = 0; i < counts.length; i++) {
+				for (int j = 0; j < counts[i].length; j++) {
+					counts[i][j] += other[i][j];
+				}
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Status counts of a run, per task of the template
+	 */
+	public static class Result<E> {
+		private final Array<Task<E>> tasks;
+		private final long[][] counts;
+		private final int agents;
+		private final int ticks;
+		private final long nanos;
+
+		Result (Array<Task<E>> tasks, long[][] counts, int agents, int ticks, long nanos) {
+			this.tasks = tasks;
+			this.counts = counts;
+			this.agents = agents;
+			this.ticks = ticks;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @param index index of the task in the template, in pre order with guards before children
+		 * @return number of times the task changed to given status, in all agents
+		 */
+		public long getCount (int index, Task.Status status) {
+			return counts[index][status.ordinal()];
+		}
+
+		/**
+		 * @param task task from the template
+		 * @return number of times the task changed to given status, in all agents, 0 if it is not in the template
+		 */
+		public long getCount (Task<E> task, Task.Status status) {
+			int index = tasks.indexOf(task, true);
+			return index >= 0 ? counts[index][status.ordinal()] : 0;
+		}
+
+		/**
+		 * @return number of times any task changed to given status
+		 */
+		public long getTotal (Task.Status status) {
+			long total = 0;
+			for (long[] taskCounts : counts) {
+				total += taskCounts[status.ordinal()];
+			}
+			return total;
+		}
+
+		/**
+		 * @return template task with given index, or its copy if the template changed its structure when copied
+		 */
+		public Task<E> getTask (int index) {
+			return tasks.get(index);
+		}
+
+		public int getTaskCount () {
+			return tasks.size;
+		}
+
+		public int getAgents () {
+			return agents;
+		}
+
+		public int getTicks () {
+			return ticks;
+		}
+
+		/**
+		 * @return wall time of the run in nanoseconds
+		 */
+		public long getNanos () {
+			return nanos;
+		}
+
+		@Override public String toString () {
+			StringBuilder sb = new StringBuilder("Result{agents=").append(agents)
+				.append(", ticks=").append(ticks)
+				.append(", ms=").append(nanos / 1000000);
+			for (int i = 0; i < tasks.size; i++) {
+				sb.append("\n  ").append(tasks.get(i).getClass().getSimpleName());
+				for (Task.Status status : STATUSES) {
+					long count = counts[i][status.ordinal()];
+					if (count > 0)
+						sb.append(' ').append(status).append('=').append(count);
+				}
+			}
+			return sb.append('}').toString();
+		}
+	}
+}
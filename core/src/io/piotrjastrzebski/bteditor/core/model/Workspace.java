@@ -0,0 +1,296 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import io.piotrjastrzebski.bteditor.core.BehaviorTreeEditor;
+import io.piotrjastrzebski.bteditor.core.Logger;
+
+/**
+ * Set of {@link ModelTree}s that are edited and run at the same time
+ * <p>
+ * All models share single {@link TaskLibrary} and {@link SubtreePathResolver}. Each tree is stepped at its own rate,
+ * whether it is active or not. Trees stepped within a time budget on the ui thread share a single frame budget, see
+ * {@link #setFrameBudget(float)}. Switching active tree does not touch the models.
+ *
+ * @param <E> type of the blackboard object in the trees
+ */
+public class Workspace<E> {
+	private final static String TAG = Workspace.class.getSimpleName();
+
+	private TaskLibrary<E> taskLibrary = new TaskLibrary<>();
+	private SubtreePathResolver pathResolver = new SubtreePathResolver();
+	private ObjectMap<String, Entry<E>> nameToEntry = new ObjectMap<>();
+	// in order of addition, stepped in this order
+	private Array<Entry<E>> entries = new Array<>();
+	private Entry<E> active;
+	private float defaultStepDelay = 1;
+	// time for stepping on the ui thread each frame, split between trees that use a time budget
+	private long frameBudgetNanos = 4000000;
+	private Logger logger = BehaviorTreeEditor.NULL_LOGGER;
+
+	/**
+	 * Add new tree to the workspace, first added tree becomes active
+	 *
+	 * @param name unique name of the tree
+	 * @return entry with model of the tree
+	 */
+	public Entry<E> add (String name, BehaviorTree<E> tree) {
+		if (name == null)
+			throw new IllegalArgumentException("Name cannot be null!");
+		if (nameToEntry.containsKey(name))
+			throw new IllegalArgumentException("Tree with name " + name + " already added!");
+		ModelTree<E> model = new ModelTree<>(taskLibrary);
+		model.setPathResolver(pathResolver);
+		model.setLogger(logger);
+		Entry<E> entry = new Entry<>(name, model);
+		entry.setStepDelay(defaultStepDelay);
+		if (tree != null)
+			model.init(tree);
+		nameToEntry.put(name, entry);
+		entries.add(entry);
+		if (active == null)
+			active = entry;
+		return entry;
+	}
+
+	/**
+	 * Remove tree from the workspace, if it was active, first remaining tree becomes active
+	 *
+	 * @return removed entry or null
+	 */
+	public Entry<E> remove (String name) {
+		Entry<E> entry = nameToEntry.remove(name);
+		if (entry == null)
+			return null;
+		entries.removeValue(entry, true);
+		entry.setBackground(false);
+		entry.model.reset();
+		if (active == entry)
+			active = entries.size > 0 ? entries.first() : null;
+		return entry;
+	}
+
+	public Entry<E> get (String name) {
+		return nameToEntry.get(name);
+	}
+
+	/**
+	 * @return entry that is active now, null if there are none
+	 */
+	public Entry<E> setActive (String name) {
+		Entry<E> entry = nameToEntry.get(name);
+		if (entry == null) {
+			logger.error(TAG, "Tree with name " + name + " not found");
+			return active;
+		}
+		active = entry;
+		return entry;
+	}
+
+	public Entry<E> getActive () {
+		return active;
+	}
+
+	/**
+	 * @return all entries, in order of addition, do not modify
+	 */
+	public Array<Entry<E>> getEntries () {
+		return entries;
+	}
+
+	public int size () {
+		return entries.size;
+	}
+
+	/**
+	 * Step trees that are due and apply background results, call every frame on the ui thread
+	 */
+	public void update (float delta) {
+		// shared, single update delivers results to all models
+		pathResolver.update();
+		int budgeted = 0;
+		for (int i = 0; i < entries.size; i++) {
+			if (entries.get(i).usesBudget())
+				budgeted++;
+		}
+		long share = frameBudgetNanos / Math.max(1, budgeted);
+		for (int i = 0; i < entries.size; i++) {
+			entries.get(i).update(delta, share);
+		}
+	}
+
+	/**
+	 * @param millis max time spent stepping trees on the ui thread each frame, split between trees that step within a
+	 *               time budget or fast forward, each tree uses at most its own budget
+	 */
+	public void setFrameBudget (float millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("Budget must be > 0, is " + millis);
+		frameBudgetNanos = (long)(millis * 1000000);
+	}
+
+	public float getFrameBudget () {
+		return frameBudgetNanos / 1000000f;
+	}
+
+	/**
+	 * @param delay delay between steps for trees added after this call
+	 */
+	public void setDefaultStepDelay (float delay) {
+		this.defaultStepDelay = delay;
+	}
+
+	public float getDefaultStepDelay () {
+		return defaultStepDelay;
+	}
+
+	public TaskLibrary<E> getTaskLibrary () {
+		return taskLibrary;
+	}
+
+	public SubtreePathResolver getPathResolver () {
+		return pathResolver;
+	}
+
+	public void setLogger (Logger logger) {
+		this.logger = logger != null ? logger : BehaviorTreeEditor.NULL_LOGGER;
+		for (int i = 0; i < entries.size; i++) {
+			entries.get(i).model.setLogger(this.logger);
+		}
+	}
+
+	/**
+	 * Reset all models and remove them from the workspace
+	 */
+	public void clear () {
+		for (int i = 0; i < entries.size; i++) {
+			Entry<E> entry = entries.get(i);
+			entry.setBackground(false);
+			entry.model.reset();
+		}
+		entries.clear();
+		nameToEntry.clear();
+		active = null;
+	}
+
+	/**
+	 * Stop background thread of the shared path resolver
+	 */
+	public void dispose () {
+		clear();
+		pathResolver.dispose();
+	}
+
+	public static class Entry<E> {
+		private final String name;
+		private final ModelTree<E> model;
+		private StepScheduler scheduler = new StepScheduler();
+		private boolean paused;
+		// null when stepped on the ui thread
+		private BackgroundStepper<E> stepper;
+
+		private Entry (String name, ModelTree<E> model) {
+			this.name = name;
+			this.model = model;
+		}
+
+		private void update (float delta, long maxNanos) {
+			// apply direct changes of tasks, worker never validates the model itself
+			model.validate();
+			if (stepper != null) {
+				// stepped by the worker, we only need results
+				stepper.drain();
+			} else if (canStep()) {
+				scheduler.update(delta, model, maxNanos);
+			} else {
+				scheduler.idle();
+			}
+			// stay where the breakpoint hit until resumed
+			if (!paused && model.isBreakpointHit())
+				setPaused(true);
+		}
+
+		private boolean canStep () {
+			// invalid trees cant be stepped, fast forward works while paused, so we can jump ahead from a known state
+			return model.getRootNode() != null && model.isValid() && (!paused || scheduler.isFastForwarding());
+		}
+
+		/**
+		 * @return if this tree takes a share of the frame budget, trees stepped in background dont
+		 */
+		private boolean usesBudget () {
+			return stepper == null && scheduler.usesBudget() && canStep();
+		}
+
+		public String getName () {
+			return name;
+		}
+
+		public ModelTree<E> getModel () {
+			return model;
+		}
+
+		/**
+		 * @param stepDelay delay between steps in seconds, negative to not step at all
+		 */
+		public void setStepDelay (float stepDelay) {
+			scheduler.setFixedRate(stepDelay);
+		}
+
+		public float getStepDelay () {
+			return scheduler.getDelay();
+		}
+
+		/**
+		 * @return scheduler that steps this tree, for other stepping modes
+		 */
+		public StepScheduler getScheduler () {
+			return scheduler;
+		}
+
+		/**
+		 * @param paused false to resume, also past a breakpoint that hit
+		 */
+		public void setPaused (boolean paused) {
+			this.paused = paused;
+			if (!paused)
+				model.clearBreakpointHit();
+			if (stepper != null)
+				stepper.setPaused(paused);
+		}
+
+		public boolean isPaused () {
+			return paused;
+		}
+
+		/**
+		 * Step the tree on a worker thread, so slow tasks dont block the ui, see {@link BackgroundStepper}
+		 */
+		public void setBackground (boolean background) {
+			if (background == (stepper != null))
+				return;
+			if (background) {
+				stepper = new BackgroundStepper<>(model, scheduler);
+				stepper.setPaused(paused);
+				stepper.start();
+			} else {
+				stepper.stop();
+				stepper = null;
+			}
+		}
+
+		public boolean isBackground () {
+			return stepper != null;
+		}
+
+		@Override public String toString () {
+			return "Entry{" +
+				"name='" + name + '\'' +
+				", scheduler=" + scheduler +
+				", paused=" + paused +
+				", background=" + (stepper != null) +
+				'}';
+		}
+	}
+}
@@ -1,22 +1,23 @@
 package io.piotrjastrzebski.bteditor.core.view;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ai.btree.Task;
 import com.badlogic.gdx.ai.utils.random.*;
-import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
 import com.badlogic.gdx.scenes.scene2d.ui.*;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.Pools;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.Constructor;
 import com.badlogic.gdx.utils.reflect.Field;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 import io.piotrjastrzebski.bteditor.core.BehaviorTreeEditor;
 import io.piotrjastrzebski.bteditor.core.Logger;
+import io.piotrjastrzebski.bteditor.core.model.SubtreePathResolver;
 
 /**
  * Created by PiotrJ on 06/10/15.
@@ -439,19 +440,37 @@ class AttrFieldEdit {
 		return vtf;
 	}
 
-	public static Actor createPathEditField (final Object object, final Field field, boolean required, Skin skin) throws ReflectionException {
+	public static Actor createPathEditField (final Object object, final Field field, boolean required,
+		final SubtreePathResolver resolver, Skin skin) throws ReflectionException {
 		String value = (String)field.get(object);
 		final TextField tf = new TextField(value, skin);
 		tf.addListener(new ChangeListener() {
 			@Override public void changed (ChangeEvent event, Actor actor) {
-				String text = tf.getText();
+				final String text = tf.getText();
 				if (text.length() == 0) {
 					tf.setColor(Color.RED);
 					return;
 				}
 				// TODO what else? we could try to parse it...
-				FileHandle fh = Gdx.files.internal(text);
-				if (fh.isDirectory() || !fh.exists()) {
+				int state = resolver.check(text);
+				if (state == SubtreePathResolver.PENDING) {
+					tf.setColor(Color.YELLOW);
+					// dont block on the file system, check cached state until its known
+					tf.clearActions();
+					tf.addAction(new Action() {
+						@Override public boolean act (float delta) {
+							// new text, new check
+							if (!text.equals(tf.getText()))
+								return true;
+							if (resolver.check(text) == SubtreePathResolver.PENDING)
+								return false;
+							ChangeEvent changeEvent = Pools.obtain(ChangeEvent.class);
+							tf.fire(changeEvent);
+							Pools.free(changeEvent);
+							return true;
+						}
+					});
+				} else if (state == SubtreePathResolver.MISSING) {
 					tf.setColor(Color.RED);
 				} else {
 					tf.setColor(Color.WHITE);
@@ -7,13 +7,15 @@ import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
-import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.ui.*;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.IntIntMap;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
 import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+import io.piotrjastrzebski.bteditor.core.model.TaskProfiler;
 
 /**
  * Created by PiotrJ on 30/10/15.
@@ -24,6 +26,8 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 	protected Node<E> root;
 	protected ModelTree<E> model;
 	protected Table container;
+	protected IdentityMap<ModelTask<E>, Node<E>> taskToNode = new IdentityMap<>();
+	private final static Task.Status[] STATUSES = Task.Status.values();
 
 	public ViewGraph (TextureRegionDrawable line, Skin skin) {
 		super(new Table(), skin);
@@ -38,6 +42,9 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 
 	public void reset () {
 		container.reset();
+		taskToNode.clear();
+		clearStatuses();
+		replaying = false;
 		if (model != null) model.removeListener(this);
 	}
 
@@ -46,20 +53,31 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 		this.model = model;
 		model.addListener(this);
 		ModelTask<E> rootTask = model.getRootNode();
-		root = new Node<>(createTaskActor(rootTask), rootTask, skin);
+		root = createNodes(rootTask);
 		container.add(root).expand().fillX().top();
-		for (int i = 0; i < rootTask.getChildCount(); i++) {
-			ModelTask<E> child = rootTask.getChild(i);
-			createNodes(root, child);
-		}
 	}
 
-	private void createNodes (Node<E> parent, ModelTask<E> task) {
+	private Node<E> createNodes (ModelTask<E> task) {
 		Node<E> node = new Node<>(createTaskActor(task), task, skin);
-		parent.addNode(node);
+		taskToNode.put(task, node);
+		// lazy subtrees are added when materialized
+		if (!task.isMaterialized())
+			return node;
 		for (int i = 0; i < task.getChildCount(); i++) {
 			ModelTask<E> child = task.getChild(i);
-			createNodes(node, child);
+			node.addNode(createNodes(child));
+		}
+		return node;
+	}
+
+	private void removeNodes (Node<E> node) {
+		taskToNode.remove(node.task);
+		if (node.dirty)
+			dirtyNodes.removeValue(node, true);
+		if (node.fading)
+			fadingNodes.removeValue(node, true);
+		for (Node<E> child : node.childrenNodes) {
+			removeNodes(child);
 		}
 	}
 
@@ -92,23 +110,192 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 			float len = tmp.set(end).sub(sx, sy).len();
 			float angle = tmp.angle();
 			batch.setColor(node.actor.getColor());
-			line.draw(batch, sx, sy, 0, 1.5f, len, 3, 1, 1, angle);
+			// hot paths are thicker
+			float width = heatMode != HeatMode.OFF ? 3 + 3 * node.heatShare : 3;
+			line.draw(batch, sx, sy, 0, width / 2, len, width, 1, 1, angle);
 			drawConnections(batch, node);
 		}
 	}
 
-	private Node<E> findNode (Task<E> task) {
-		if (root == null) return null;
-		return root.findNode(task);
+	@Override public void statusChanged (ModelTask<E> task, Task.Status from, Task.Status to) {
+		// showing the past, live statuses are picked up in showLive()
+		if (replaying)
+			return;
+		Node<E> node = taskToNode.get(task);
+		if (node != null && heatMode != HeatMode.OFF) {
+			// colored by heat in act()
+			if (heatMode == HeatMode.VISITS)
+				node.heat++;
+		} else if (node != null) {
+			node.pendingStatus = to;
+			if (!node.dirty) {
+				node.dirty = true;
+				dirtyNodes.add(node);
+			}
+		}
 	}
 
-	@Override public void statusChanged (ModelTask<E> task, Task.Status from, Task.Status to) {
-		Node<E> node = findNode(task.getTask());
-		if (node != null) {
-			Actor actor = node.actor;
-			actor.clearActions();
-			actor.setColor(ViewColors.getColor(task.getStatus()));
-			actor.addAction(Actions.color(Color.GRAY, 1.5f, Interpolation.pow3In));
+	private final static float FADE_TIME = 1.5f;
+	// nodes with status changed since last act, only last status of each is shown
+	private Array<Node<E>> dirtyNodes = new Array<>();
+	// nodes with status fading to gray
+	private Array<Node<E>> fadingNodes = new Array<>(false, 16);
+	private float time;
+	private final Color fadeColor = new Color();
+
+	private void updateStatuses (float delta) {
+		time += delta;
+		for (int i = 0; i < dirtyNodes.size; i++) {
+			Node<E> node = dirtyNodes.get(i);
+			node.dirty = false;
+			node.shownStatus = node.pendingStatus;
+			node.changedAt = time;
+			if (!node.fading) {
+				node.fading = true;
+				fadingNodes.add(node);
+			}
+		}
+		dirtyNodes.clear();
+		for (int i = fadingNodes.size - 1; i >= 0; i--) {
+			Node<E> node = fadingNodes.get(i);
+			float progress = (time - node.changedAt) / FADE_TIME;
+			if (progress >= 1) {
+				node.actor.setColor(Color.GRAY);
+				node.fading = false;
+				fadingNodes.removeIndex(i);
+			} else {
+				fadeColor.set(ViewColors.getColor(node.shownStatus)).lerp(Color.GRAY, Interpolation.pow3In.apply(progress));
+				node.actor.setColor(fadeColor);
+			}
+		}
+	}
+
+	private void clearStatuses () {
+		for (int i = 0; i < dirtyNodes.size; i++) {
+			dirtyNodes.get(i).dirty = false;
+		}
+		dirtyNodes.clear();
+		for (int i = 0; i < fadingNodes.size; i++) {
+			fadingNodes.get(i).fading = false;
+		}
+		fadingNodes.clear();
+	}
+
+	private boolean replaying;
+
+	/**
+	 * What heat of a node is based on
+	 */
+	public enum HeatMode {
+		/** nodes show status changes, no heat */
+		OFF,
+		/** number of status updates */
+		VISITS,
+		/** time spent in the task, from {@link ModelTree#getProfiler()} */
+		TIME
+	}
+
+	private HeatMode heatMode = HeatMode.OFF;
+	private float heatWindow = 2;
+	private final static Color COLOR_COLD = new Color(Color.DARK_GRAY);
+	private final static Color COLOR_HOT = new Color(Color.RED);
+	private final Color heatColor = new Color();
+
+	/**
+	 * Color nodes and connections by how hot they are, instead of by status changes
+	 * <p>
+	 * Heat decays exponentially, so it shows recent activity, see {@link #setHeatWindow(float)}.
+	 */
+	public void setHeatMode (HeatMode mode) {
+		if (mode == null)
+			throw new IllegalArgumentException("Mode cannot be null!");
+		if (heatMode == mode)
+			return;
+		heatMode = mode;
+		clearStatuses();
+		for (Node<E> node : taskToNode.values()) {
+			node.heat = 0;
+			node.heatShare = 0;
+			node.seenNanos = -1;
+			if (mode == HeatMode.OFF) {
+				node.actor.clearActions();
+				node.actor.setColor(ViewColors.getColor(node.task.getStatus()));
+			}
+		}
+	}
+
+	public HeatMode getHeatMode () {
+		return heatMode;
+	}
+
+	/**
+	 * @param seconds time after which heat drops to about a third
+	 */
+	public void setHeatWindow (float seconds) {
+		if (seconds <= 0)
+			throw new IllegalArgumentException("Window must be > 0, is " + seconds);
+		heatWindow = seconds;
+	}
+
+	@Override public void act (float delta) {
+		super.act(delta);
+		if (replaying)
+			return;
+		if (heatMode != HeatMode.OFF) {
+			updateHeat(delta);
+		} else {
+			updateStatuses(delta);
+		}
+	}
+
+	private void updateHeat (float delta) {
+		float decay = (float)Math.exp(-delta / heatWindow);
+		TaskProfiler profiler = model != null ? model.getProfiler() : null;
+		float max = 0;
+		for (Node<E> node : taskToNode.values()) {
+			if (heatMode == HeatMode.TIME && profiler != null) {
+				long nanos = profiler.getNanos(node.task);
+				// first look or profiler was cleared
+				if (node.seenNanos >= 0 && nanos >= node.seenNanos)
+					node.heat += (nanos - node.seenNanos) / 1000000f;
+				node.seenNanos = nanos;
+			}
+			node.heat *= decay;
+			max = Math.max(max, node.heat);
+		}
+		for (Node<E> node : taskToNode.values()) {
+			node.heatShare = max > 0 ? node.heat / max : 0;
+			node.actor.clearActions();
+			node.actor.setColor(heatColor.set(COLOR_COLD).lerp(COLOR_HOT, node.heatShare));
+		}
+	}
+
+	/**
+	 * Color nodes by given statuses, live status changes are ignored until {@link #showLive()} is called
+	 *
+	 * @param statuses {@link ModelTask#getId()} to status ordinal, missing tasks are shown as fresh
+	 */
+	public void showStatuses (IntIntMap statuses) {
+		replaying = true;
+		clearStatuses();
+		for (Node<E> node : taskToNode.values()) {
+			int status = statuses.get(node.task.getId(), Task.Status.FRESH.ordinal());
+			node.actor.clearActions();
+			node.actor.setColor(ViewColors.getColor(STATUSES[status]));
+		}
+	}
+
+	/**
+	 * Go back to showing current statuses after {@link #showStatuses(IntIntMap)}
+	 */
+	public void showLive () {
+		if (!replaying)
+			return;
+		replaying = false;
+		clearStatuses();
+		for (Node<E> node : taskToNode.values()) {
+			node.actor.clearActions();
+			node.actor.setColor(ViewColors.getColor(node.task.getStatus()));
 		}
 	}
 
@@ -116,6 +303,55 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 
 	}
 
+	@Override public void nodeAdded (ModelTask<E> task) {
+		Node<E> parent = taskToNode.get(task.getParent());
+		if (parent == null) return;
+		parent.insertNode(task.getIndexInParent(), createNodes(task));
+		invalidateHierarchy();
+	}
+
+	@Override public void nodeRemoved (ModelTask<E> parent, ModelTask<E> task) {
+		Node<E> node = taskToNode.get(task);
+		if (node == null) return;
+		removeNodes(node);
+		if (node == root) {
+			container.clear();
+			root = null;
+		} else {
+			Node<E> parentNode = taskToNode.get(parent);
+			if (parentNode != null) parentNode.removeNode(node);
+		}
+		invalidateHierarchy();
+	}
+
+	@Override public void nodeMoved (ModelTask<E> from, ModelTask<E> task) {
+		Node<E> node = taskToNode.get(task);
+		Node<E> fromNode = taskToNode.get(from);
+		Node<E> toNode = taskToNode.get(task.getParent());
+		if (node == null && toNode != null) {
+			// moved out of a lazy subtree
+			nodeAdded(task);
+			return;
+		}
+		if (node == null || fromNode == null || toNode == null) return;
+		fromNode.removeNode(node);
+		toNode.insertNode(task.getIndexInParent(), node);
+		invalidateHierarchy();
+	}
+
+	@Override public void attributeChanged (ModelTask<E> task) {
+
+	}
+
+	@Override public void nodeMaterialized (ModelTask<E> task) {
+		Node<E> node = taskToNode.get(task);
+		if (node == null) return;
+		for (int i = 0; i < task.getChildCount(); i++) {
+			node.addNode(createNodes(task.getChild(i)));
+		}
+		invalidateHierarchy();
+	}
+
 	@Override public void rebuild () {
 		clear();
 		rebuild(model);
@@ -125,11 +361,24 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 	@Override public void clear () {
 		container.clear();
 		root = null;
+		taskToNode.clear();
+		clearStatuses();
 		model.removeListener(this);
 	}
 
 	public static class Node<E> extends Table  {
 		protected Actor actor;
+		// decayed visits or time, see HeatMode
+		protected float heat;
+		// heat relative to the hottest node
+		protected float heatShare;
+		protected long seenNanos = -1;
+		// see ViewGraph#updateStatuses()
+		protected Task.Status pendingStatus;
+		protected Task.Status shownStatus;
+		protected float changedAt;
+		protected boolean dirty;
+		protected boolean fading;
 		protected ModelTask<E> task;
 		protected Array<Node<E>> childrenNodes = new Array<>();
 		protected Table top;
@@ -175,13 +424,27 @@ public class ViewGraph<E> extends ScrollPane implements ModelTree.Listener<E> {
 				top.add(hide).padLeft(5);
 		}
 
-		public Node<E> findNode (Task<E> task) {
-			if (this.task.getTask() == task) return this;
+		public void insertNode (int index, Node<E> node) {
+			childrenNodes.insert(index, node);
+			layoutNodes();
+		}
+
+		public void removeNode (Node<E> node) {
+			childrenNodes.removeValue(node, true);
+			layoutNodes();
+		}
+
+		private void layoutNodes () {
+			// cells cant be inserted, so we add them again in order
+			children.clearChildren();
 			for (Node<E> node : childrenNodes) {
-				Node<E> found = node.findNode(task);
-				if (found != null) return found;
+				children.add(node).expand().fillX().top().pad(5);
+			}
+			if (childrenNodes.size == 0) {
+				hide.remove();
+			} else if (hide.getParent() == null) {
+				top.add(hide).padLeft(5);
 			}
-			return null;
 		}
 	}
 }
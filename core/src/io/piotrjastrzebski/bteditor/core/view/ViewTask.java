@@ -6,7 +6,6 @@ import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
-import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
@@ -15,6 +14,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.DragAndDrop;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.utils.Pool;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.TaskProfiler;
 import io.piotrjastrzebski.bteditor.core.view.ViewTree.DropPoint;
 
 /**
@@ -24,6 +24,7 @@ public class ViewTask<E> extends Tree.Node implements Pool.Poolable {
 	protected ModelTask<E> task;
 	protected Label name;
 	protected Label status;
+	protected Label profile;
 	protected DragAndDrop dad;
 	protected Table container;
 
@@ -34,6 +35,10 @@ public class ViewTask<E> extends Tree.Node implements Pool.Poolable {
 	protected Drawable containerBG;
 	protected ViewTree<E> owner;
 	protected Skin skin;
+	/**
+	 * false if view tasks for children were not created yet
+	 */
+	protected boolean populated = true;
 
 	public ViewTask (final ViewTree<E> owner, Skin skin, Drawable bg) {
 		super(new Table(skin));
@@ -48,6 +53,9 @@ public class ViewTask<E> extends Tree.Node implements Pool.Poolable {
 		status = new Label("", skin);
 		container.add(name).pad(2, 0, 2, 10);
 		container.add(status);
+		profile = new Label("", skin);
+		profile.setColor(Color.LIGHT_GRAY);
+		container.add(profile).padLeft(10);
 		// dad prefers touchable things, we want entire node to be a valid target
 		container.setTouchable(Touchable.enabled);
 		containerBG = bg;
@@ -86,26 +94,42 @@ public class ViewTask<E> extends Tree.Node implements Pool.Poolable {
 		dad.addSource(source);
 		dad.addTarget(target);
 		name.setText(task.getName());
-		statusChanged(null, task.getStatus());
+		showStatus(task.getStatus());
 		validChanged(task.isValid());
 		return this;
 	}
 
 	public void update (float delta) {
 		for (Tree.Node node : getChildren()) {
-			((ViewTask)node).update(delta);
+			// may be a placeholder
+			if (node instanceof ViewTask)
+				((ViewTask)node).update(delta);
 		}
 	}
 
+	@Override public void setExpanded (boolean expanded) {
+		if (expanded && !populated) {
+			owner.populate(this);
+		}
+		super.setExpanded(expanded);
+	}
+
 	@Override public void reset () {
 		name.setText("");
+		profile.setText("");
 		task = null;
 		dad.removeSource(source);
 		dad.removeTarget(target);
 		for (Tree.Node node : getChildren()) {
-			owner.freeVT((ViewTask<E>)node);
+			if (node instanceof ViewTask)
+				owner.freeVT((ViewTask<E>)node);
 		}
 		removeAll();
+		populated = true;
+		pendingStatus = null;
+		shownStatus = null;
+		dirty = false;
+		fading = false;
 	}
 
 	public static final float DROP_MARGIN = 0.25f;
@@ -128,20 +152,98 @@ public class ViewTask<E> extends Tree.Node implements Pool.Poolable {
 
 	protected float fadeTime = 1.5f;
 
+	private final static String[] STATUS_TEXT;
+	private final static String[] STATUS_SHORT_TEXT;
+	static {
+		Task.Status[] statuses = Task.Status.values();
+		STATUS_TEXT = new String[statuses.length];
+		STATUS_SHORT_TEXT = new String[statuses.length];
+		for (Task.Status status : statuses) {
+			STATUS_TEXT[status.ordinal()] = status.toString();
+			STATUS_SHORT_TEXT[status.ordinal()] = status.toString().substring(0, 1);
+		}
+	}
+	private final static Color tmpColor = new Color();
+
+	// set when status changes, last one is shown in next ViewTree#update()
+	Task.Status pendingStatus;
+	// in dirty or fading tasks of the owner
+	boolean dirty;
+	boolean fading;
+	private Task.Status shownStatus;
+	private float changedAt;
+
 	protected void statusChanged (Task.Status from, Task.Status to) {
+		pendingStatus = to;
+		if (!dirty) {
+			dirty = true;
+			owner.statusDirty(this);
+		}
+	}
+
+	/**
+	 * Show pending status, it will fade from given time
+	 */
+	void applyStatus (float time) {
+		dirty = false;
+		showStatus(pendingStatus);
+		changedAt = time;
+	}
+
+	/**
+	 * @return true if status is still fading
+	 */
+	boolean fade (float time) {
+		float progress = (time - changedAt) / fadeTime;
+		if (progress >= 1) {
+			status.setColor(Color.GRAY);
+			return false;
+		}
+		tmpColor.set(ViewColors.getColor(shownStatus)).lerp(Color.GRAY, Interpolation.pow3In.apply(progress));
+		status.setColor(tmpColor);
+		return true;
+	}
+
+	/**
+	 * Show given status without fading, used when replaying past ticks
+	 */
+	protected void showStatus (Task.Status to) {
+		shownStatus = to;
 		if (owner.getShortStatuses()) {
-			status.setText("" + to.toString().charAt(0));
+			status.setText(STATUS_SHORT_TEXT[to.ordinal()]);
 		} else {
-			status.setText(to.toString());
+			status.setText(STATUS_TEXT[to.ordinal()]);
 		}
 		status.setColor(ViewColors.getColor(to));
 		status.clearActions();
-		status.addAction(Actions.color(Color.GRAY, fadeTime, Interpolation.pow3In));
+	}
+
+	/**
+	 * Show profiler stats of the task next to its status
+	 *
+	 * @param profiler profiler to take stats from, null to hide them
+	 * @param sb       reused for the text
+	 */
+	protected void showProfile (TaskProfiler profiler, StringBuilder sb) {
+		if (profiler == null || profiler.getCalls(task) == 0) {
+			profile.setText("");
+			return;
+		}
+		sb.setLength(0);
+		profiler.appendStats(sb, task);
+		profile.setText(sb);
+	}
+
+	protected void attributeChanged () {
+		name.setText(task.getName());
 	}
 
 	protected void validChanged (boolean valid) {
 		if (valid) {
 			name.setColor(Color.WHITE);
+		} else if (task.isResolving()) {
+			// not known yet
+			name.setColor(Color.YELLOW);
 		} else {
 			// TODO some sort of a hint?
 			name.setColor(Color.RED);
@@ -1,15 +1,22 @@
 package io.piotrjastrzebski.bteditor.core.view;
 
 import com.badlogic.gdx.ai.btree.Task;
-import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
 import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Event;
+import com.badlogic.gdx.scenes.scene2d.EventListener;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.*;
-import com.badlogic.gdx.utils.reflect.Annotation;
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.Field;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 import io.piotrjastrzebski.bteditor.core.TaskComment;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+import io.piotrjastrzebski.bteditor.core.model.TaskLibrary;
+import io.piotrjastrzebski.bteditor.core.model.TaskMetadata;
 
 /**
  * View for attribute editing on tasks
@@ -21,9 +28,41 @@ public class ViewTaskAttributeEdit extends Table {
 	private Label name;
 	private Label taskComment;
 
+	private ModelTask<?> edited;
+	// values of edited fields, so we know what changed
+	private Array<Field> editedFields = new Array<>();
+	private Array<Object> editedValues = new Array<>();
+	// fields change the task directly, model is in edit while they handle input, so background worker doesnt step it
+	private ModelTree<?> lockedModel;
+	private int locks;
+
 	public ViewTaskAttributeEdit (Skin skin) {
 		super();
 		this.skin = skin;
+		addCaptureListener(new EventListener() {
+			@Override public boolean handle (Event event) {
+				if (edited != null && changesTask(event)) {
+					if (lockedModel == null)
+						lockedModel = edited.getModel();
+					lockedModel.beginEdit();
+					locks++;
+				}
+				return false;
+			}
+		});
+		// fields change the task directly, we need to tell the model about it
+		addListener(new ChangeListener() {
+			@Override public void changed (ChangeEvent event, Actor actor) {
+				if (edited != null) attributesChanged();
+			}
+		});
+		addListener(new EventListener() {
+			@Override public boolean handle (Event event) {
+				if (locks > 0 && changesTask(event))
+					endEdit();
+				return false;
+			}
+		});
 		add(top = new Label("Edit task", skin)).row();
 		add(name = new Label("<?>", skin));
 		taskComment = new Label("", skin);
@@ -31,14 +70,69 @@ public class ViewTaskAttributeEdit extends Table {
 		row();
 	}
 
-	public void startEdit (ModelTask task) {
+	private static boolean changesTask (Event event) {
+		if (event instanceof ChangeListener.ChangeEvent)
+			return true;
+		if (!(event instanceof InputEvent))
+			return false;
+		switch (((InputEvent)event).getType()) {
+		case touchDown:
+		case touchDragged:
+		case touchUp:
+		case keyDown:
+		case keyTyped:
+		case keyUp:
+			return true;
+		}
+		return false;
+	}
+
+	private void endEdit () {
+		locks--;
+		lockedModel.endEdit();
+		if (locks == 0)
+			lockedModel = null;
+	}
+
+	@Override public void act (float delta) {
+		super.act(delta);
+		// event was stopped before it got back to us
+		while (locks > 0)
+			endEdit();
+	}
+
+	private void attributesChanged () {
+		Task<?> task = edited.getTask();
+		boolean changed = false;
+		for (int i = 0; i < editedFields.size; i++) {
+			Field field = editedFields.get(i);
+			Object before = editedValues.get(i);
+			Object after;
+			try {
+				after = field.get(task);
+			} catch (ReflectionException e) {
+				continue;
+			}
+			if (before == null ? after == null : before.equals(after))
+				continue;
+			editedValues.set(i, after);
+			// recorded so it can be undone
+			edited.attributeChanged(field, before, after);
+			changed = true;
+		}
+		// comment is not a task attribute
+		if (!changed) edited.attributesChanged();
+	}
+
+	public void startEdit (ModelTask<?> task) {
 		stopEdit();
+		edited = task;
 		name.setText(task.getClass().getSimpleName());
 		addTaskAttributes(task.getTask());
 		addComment(task);
 	}
 
-	private void addTaskAttributes (Task task) {
+	private void addTaskAttributes (Task<?> task) {
 		if (task instanceof TaskComment) {
 			String comment = ((TaskComment)task).getComment();
 			if (comment != null && comment.length() > 0) {
@@ -46,15 +140,15 @@ public class ViewTaskAttributeEdit extends Table {
 				add(taskComment).expandX().fillX().pad(0, 5, 0, 5).row();
 			}
 		}
-		Class<?> aClass = task.getClass();
-		Field[] fields = ClassReflection.getFields(aClass);
 		int added = 0;
-		for (Field f : fields) {
-			Annotation a = f.getDeclaredAnnotation(TaskAttribute.class);
-			if (a == null)
-				continue;
-			TaskAttribute annotation = a.getAnnotation(TaskAttribute.class);
-			addField(task, annotation, f);
+		for (TaskMetadata.Attribute attribute : TaskLibrary.getMetadata(task.getClass()).getAttributes()) {
+			addField(task, attribute);
+			try {
+				editedValues.add(attribute.get(task));
+				editedFields.add(attribute.getField());
+			} catch (ReflectionException e) {
+				e.printStackTrace();
+			}
 			added++;
 		}
 		if (added == 0) {
@@ -62,25 +156,22 @@ public class ViewTaskAttributeEdit extends Table {
 		}
 	}
 
-	private void addField (Task task, TaskAttribute ann, Field field) {
-		// prefer name from annotation if there is one
-		String name = ann.name();
-		if (name == null || name.length() == 0) {
-			name = field.getName();
-		}
+	private void addField (Task<?> task, TaskMetadata.Attribute attribute) {
+		String name = attribute.getName();
+		Field field = attribute.getField();
 		Table cont = new Table();
 		cont.add(new Label(name, skin)).row();
 		// include is magic, need magic handling
 		if (task instanceof Include && name.equals("subtree")) {
 			try {
-				cont.add(AttrFieldEdit.createPathEditField(task, field, ann.required(), skin));
+				cont.add(AttrFieldEdit.createPathEditField(task, field, attribute.isRequired(), edited.getModel().getPathResolver(), skin));
 			} catch (ReflectionException e) {
 				e.printStackTrace();
 				cont.add(new Label("<Failed>", skin));
 			}
 		} else {
 			try {
-				cont.add(AttrFieldEdit.createEditField(task, field, ann.required(), skin));
+				cont.add(AttrFieldEdit.createEditField(task, field, attribute.isRequired(), skin));
 			} catch (ReflectionException e) {
 				e.printStackTrace();
 				cont.add(new Label("<Failed>", skin));
@@ -89,7 +180,7 @@ public class ViewTaskAttributeEdit extends Table {
 		add(cont).row();
 	}
 
-	private void addComment (ModelTask task) {
+	private void addComment (ModelTask<?> task) {
 		Table cont = new Table();
 		cont.add(new Label("# Comment", skin)).row();
 		// include is magic, need magic handling
@@ -105,6 +196,9 @@ public class ViewTaskAttributeEdit extends Table {
 	}
 
 	public void stopEdit () {
+		edited = null;
+		editedFields.clear();
+		editedValues.clear();
 		clear();
 		add(top).row();
 		add(name).row();
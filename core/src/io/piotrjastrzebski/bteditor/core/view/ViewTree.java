@@ -7,31 +7,45 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Tree;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.DragAndDrop;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.Pool;
 import io.piotrjastrzebski.bteditor.core.BehaviorTreeEditor;
 import io.piotrjastrzebski.bteditor.core.Logger;
 import io.piotrjastrzebski.bteditor.core.model.ModelTree;
 import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.TaskProfiler;
 
 /**
  * Created by EvilEntity on 10/10/2015.
  */
 public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listener<E> {
 	private static final String TAG = ViewTree.class.getSimpleName();
+	private static final Task.Status[] STATUSES = Task.Status.values();
 	protected Pool<ViewTask<E>> vtPool;
 	protected ModelTree<E> model;
+	protected IdentityMap<ModelTask<E>, ViewTask<E>> modelToView = new IdentityMap<>();
 
 	protected DragAndDrop dad;
 	private Actor separator;
 	private Pool<ViewPayload> payloadPool;
 	private boolean shortStatuses;
+	private boolean lazy;
+	private Skin skin;
+	// tick shown from the timeline, -1 for live statuses
+	private int replayTick = -1;
+	private IntIntMap replayStatuses = new IntIntMap();
+	private TaskProfiler profiler;
+	private float profileTimer;
+	private StringBuilder profileText = new StringBuilder();
 	private Logger logger = BehaviorTreeEditor.NULL_LOGGER;
 
 	public ViewTree (Skin skin, Drawable white) {
@@ -40,6 +54,7 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 
 	public ViewTree (final Skin skin, final Drawable white, float scale) {
 		super(skin);
+		this.skin = skin;
 		// remove y spacing so we dont have gaps for DaD
 		setYSpacing(0);
 		this.separator = new Image(white);
@@ -73,6 +88,75 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 		if (viewRoot == null)
 			return;
 		viewRoot.update(delta);
+		updateStatuses(delta);
+		if (profiler != null) {
+			profileTimer += delta;
+			// stats are not readable if they change every frame
+			if (profileTimer >= PROFILE_INTERVAL) {
+				profileTimer = 0;
+				showProfile();
+			}
+		}
+	}
+
+	private final static float PROFILE_INTERVAL = .5f;
+
+	// tasks with status changed since last update, only last status of each is shown
+	private Array<ViewTask<E>> dirtyTasks = new Array<>();
+	// tasks with status fading to gray
+	private Array<ViewTask<E>> fadingTasks = new Array<>(false, 16);
+	private float time;
+
+	void statusDirty (ViewTask<E> vt) {
+		dirtyTasks.add(vt);
+	}
+
+	private void updateStatuses (float delta) {
+		time += delta;
+		for (int i = 0; i < dirtyTasks.size; i++) {
+			ViewTask<E> vt = dirtyTasks.get(i);
+			vt.applyStatus(time);
+			if (!vt.fading) {
+				vt.fading = true;
+				fadingTasks.add(vt);
+			}
+		}
+		dirtyTasks.clear();
+		for (int i = fadingTasks.size - 1; i >= 0; i--) {
+			ViewTask<E> vt = fadingTasks.get(i);
+			if (!vt.fade(time)) {
+				vt.fading = false;
+				fadingTasks.removeIndex(i);
+			}
+		}
+	}
+
+	private void clearStatuses () {
+		for (int i = 0; i < dirtyTasks.size; i++) {
+			dirtyTasks.get(i).dirty = false;
+		}
+		dirtyTasks.clear();
+		for (int i = 0; i < fadingTasks.size; i++) {
+			fadingTasks.get(i).fading = false;
+		}
+		fadingTasks.clear();
+	}
+
+	/**
+	 * Show stats from the profiler on each task, see {@link ModelTree#setProfiler(TaskProfiler)}
+	 *
+	 * @param profiler profiler to show, null to hide stats
+	 */
+	public void setProfiler (TaskProfiler profiler) {
+		this.profiler = profiler;
+		profileTimer = 0;
+		showProfile();
+	}
+
+	private void showProfile () {
+		for (ViewTask<E> vt : modelToView.values()) {
+			vt.showProfile(profiler, profileText);
+		}
 	}
 
 	private void changed (ViewTask<E> selection) {
@@ -94,9 +178,15 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 			reset();
 		this.model = model;
 		model.addListener(this);
+		lazy = model.isLazy();
 		ModelTask<E> root = model.getRootNode();
 		add(viewRoot = initVT(root));
-		expandAll();
+		if (lazy) {
+			// children are created when expanded
+			viewRoot.setExpanded(true);
+		} else {
+			expandAll();
+		}
 	}
 
 	protected void addViewTask (ViewTask<E> parent, ModelTask<E> task) {
@@ -107,13 +197,65 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 	protected ViewTask<E> initVT (ModelTask<E> task) {
 		ViewTask<E> out = vtPool.obtain();
 		out.init(task);
+		modelToView.put(task, out);
+		if (replayTick >= 0)
+			out.showStatus(replayStatus(task));
+		if (lazy) {
+			out.populated = false;
+			if (task.hasChildren())
+				out.add(createPlaceholder());
+			return out;
+		}
 		for (int i = 0; i < task.getChildCount(); i++) {
 			addViewTask(out, task.getChild(i));
 		}
 		return out;
 	}
 
+	/**
+	 * Create view tasks for children of given view task, called when it is expanded for the first time in lazy mode
+	 */
+	protected void populate (ViewTask<E> vt) {
+		vt.populated = true;
+		vt.removeAll();
+		ModelTask<E> task = vt.getModelTask();
+		for (int i = 0; i < task.getChildCount(); i++) {
+			addViewTask(vt, task.getChild(i));
+		}
+	}
+
+	private Tree.Node createPlaceholder () {
+		Tree.Node node = new Tree.Node(new Label("...", skin));
+		node.setSelectable(false);
+		return node;
+	}
+
+	/**
+	 * Expand all ancestors of given task so it is visible, creating view tasks as needed
+	 *
+	 * @return view task for given task or null if it is not in the tree
+	 */
+	public ViewTask<E> reveal (ModelTask<E> task) {
+		ViewTask<E> vt = modelToView.get(task);
+		if (vt != null || task == null)
+			return vt;
+		ViewTask<E> parent = reveal(task.getParent());
+		if (parent == null)
+			return null;
+		parent.setExpanded(true);
+		return modelToView.get(task);
+	}
+
 	protected void freeVT (ViewTask<E> vt) {
+		ModelTask<E> task = vt.getModelTask();
+		// drag and drop may create another vt for same task
+		if (task != null && modelToView.get(task) == vt) {
+			modelToView.remove(task);
+		}
+		if (vt.dirty)
+			dirtyTasks.removeValue(vt, true);
+		if (vt.fading)
+			fadingTasks.removeValue(vt, true);
 		vtPool.free(vt);
 	}
 
@@ -123,9 +265,15 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 		}
 		model = null;
 		// TODO fix pooling for vts
-		remove(viewRoot);
-		freeVT(viewRoot);
+		if (viewRoot != null) {
+			remove(viewRoot);
+			freeVT(viewRoot);
+			viewRoot = null;
+		}
+		modelToView.clear();
 		vtPool.clear();
+		clearStatuses();
+		replayTick = -1;
 	}
 
 	protected Array<ViewTaskSelectedListener<E>> listeners = new Array<>();
@@ -141,6 +289,8 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 	}
 
 	protected ObjectMap<Class<? extends Task>, Task<E>> classToTask = new ObjectMap<>();
+	private Array<ViewSource> externalSources = new Array<>();
+	private boolean sourcesEnabled = true;
 
 	/**
 	 * register given actor as source with task that can be added to the tree
@@ -150,7 +300,7 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 			logger.log(TAG, "Task class already added: " + task);
 			return;
 		}
-		dad.addSource(new ViewSource(source, getPayloadPool()) {
+		ViewSource viewSource = new ViewSource(source, getPayloadPool()) {
 			@Override public ViewPayload dragStart (InputEvent event, float x, float y, int pointer, ViewPayload out) {
 				// TODO should this create a node for this already?
 				ModelTask<E> mt = model.obtain();
@@ -163,14 +313,36 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 
 			@Override public void onDragStop (InputEvent event, float x, float y, int pointer, ViewPayload payload,
 				ViewTarget target) {
-				ViewTask vt = payload.getViewTask();
-				// vt wasnt added
-				if (vt.getParent() == null) {
-					model.free(vt.getModelTask());
-					freeVT(vt);
+				ViewTask<E> vt = payload.getViewTask();
+				ModelTask<E> mt = vt.getModelTask();
+				// model task wasnt added, tree creates its own vt if it was
+				if (mt.getParent() == null && mt != model.getRootNode()) {
+					model.free(mt);
 				}
+				freeVT(vt);
 			}
-		});
+		};
+		externalSources.add(viewSource);
+		if (sourcesEnabled)
+			dad.addSource(viewSource);
+	}
+
+	/**
+	 * Enable or disable dragging from actors added via {@link #addSource(Actor, Class)}
+	 * <p>
+	 * Only one of the trees sharing the sources should have them enabled, or a drag would start in each of them
+	 */
+	public void setSourcesEnabled (boolean enabled) {
+		if (sourcesEnabled == enabled)
+			return;
+		sourcesEnabled = enabled;
+		for (ViewSource source : externalSources) {
+			if (enabled) {
+				dad.addSource(source);
+			} else {
+				dad.removeSource(source);
+			}
+		}
 	}
 
 	public void addTrash (Actor trash) {
@@ -208,7 +380,7 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 	}
 
 	/**
-	 * Add new node to target at dp
+	 * Add new node to target at dp, view is updated when model notifies us about the change
 	 */
 	public void addTo (ViewTask<E> vt, ViewTask<E> target, DropPoint to) {
 		// TODO do we want to double check?
@@ -217,16 +389,9 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 			return;
 		}
 
-		if (isAltPressed()) {
-			vt = vt.createClone();
-		} else {
-			// if the view task is already in the tree, remove it
-			vt.remove();
-		}
-
 		ModelTask<E> toAdd = vt.getModelTask();
-		if (toAdd.getParent() != null) {
-			model.remove(toAdd);
+		if (isAltPressed()) {
+			toAdd = toAdd.createClone();
 		}
 
 		ViewTask<E> parent = (ViewTask<E>)target.getParent();
@@ -235,72 +400,207 @@ public class ViewTree<E> extends Tree implements Pool.Poolable, ModelTree.Listen
 		case ABOVE:
 			// insert vt before target
 			if (parent != null) {
-				parent.insert(target.getIndexInParent(), vt);
-				model.insert(parent.getModelTask(), toAdd, targetMT.getIndexInParent());
+				addTo(toAdd, parent.getModelTask(), targetMT.getIndexInParent());
 			} else {
 				logger.error(TAG, "Null parent in addTo above !" + target);
 			}
 			break;
 		case MIDDLE:
 			// add vt to target
-			target.add(vt);
-			vt.init(toAdd);
-			model.add(targetMT, toAdd);
+			addTo(toAdd, targetMT, targetMT.getChildCount());
 			break;
 		case BELOW:
 			// insert vt after target
 			if (parent != null) {
-				parent.insert(target.getIndexInParent() + 1, vt);
-				model.insert(parent.getModelTask(), toAdd, targetMT.getIndexInParent() + 1);
+				addTo(toAdd, parent.getModelTask(), targetMT.getIndexInParent() + 1);
 			} else {
 				logger.error(TAG, "Null parent in addTo below !" + target);
 			}
 			break;
 		}
-		// parent is null when adding to the root
-		if (parent != null)
-			parent.expandAll();
+	}
+
+	private void addTo (ModelTask<E> task, ModelTask<E> target, int at) {
+		ModelTask<E> from = task.getParent();
+		if (from == null) {
+			model.insert(target, task, at);
+			return;
+		}
+		// index will shift when task is removed from same parent
+		if (from == target && task.getIndexInParent() < at) {
+			at--;
+		}
+		model.move(target, task, at);
 	}
 
 	public void trash (ViewTask<E> vt) {
-		model.remove(vt.getModelTask());
-		freeVT(vt);
-		remove(vt);
+		// model will free the task if undo history doesn't need it
+		model.trash(vt.getModelTask());
 	}
 
 	@Override public void statusChanged (ModelTask<E> task, Task.Status from, Task.Status to) {
-		ViewTask<E> vt = find(viewRoot, task);
+		ViewTask<E> vt = modelToView.get(task);
 		if (vt == null) {
+			// not created yet, will pick up current status when it is
+			if (lazy)
+				return;
 			logger.log(TAG, "VT for" + task + " in statusChanged not found!");
 			return;
 		}
+		// showing the past, live statuses are picked up in showLive()
+		if (replayTick >= 0)
+			return;
 		vt.statusChanged(from, to);
 	}
 
+	/**
+	 * Show statuses tasks had at the end of given tick, as recorded in the {@link ModelTree#getTimeline()}
+	 * <p>
+	 * Tasks without a recorded change up to that tick are shown as {@link Task.Status#FRESH}. Live status changes are
+	 * ignored until {@link #showLive()} is called.
+	 *
+	 * @param tick tick to show, see {@link ModelTree#getTick()}
+	 */
+	public void showTick (int tick) {
+		if (model == null)
+			return;
+		replayTick = Math.max(tick, 0);
+		model.getTimeline().statusesAt(replayTick, replayStatuses);
+		showReplay();
+	}
+
+	/**
+	 * Show given statuses, ie from a recorded trace, like {@link #showTick(int)} does
+	 *
+	 * @param tick     tick the statuses are from
+	 * @param statuses {@link ModelTask#getId()} to status ordinal
+	 */
+	public void showStatuses (int tick, IntIntMap statuses) {
+		replayTick = Math.max(tick, 0);
+		replayStatuses.clear();
+		replayStatuses.putAll(statuses);
+		showReplay();
+	}
+
+	private void showReplay () {
+		clearStatuses();
+		for (ViewTask<E> vt : modelToView.values()) {
+			vt.showStatus(replayStatus(vt.getModelTask()));
+		}
+	}
+
+	private Task.Status replayStatus (ModelTask<E> task) {
+		return STATUSES[replayStatuses.get(task.getId(), Task.Status.FRESH.ordinal())];
+	}
+
+	/**
+	 * Go back to showing current statuses after {@link #showTick(int)}
+	 */
+	public void showLive () {
+		if (replayTick < 0)
+			return;
+		replayTick = -1;
+		clearStatuses();
+		for (ViewTask<E> vt : modelToView.values()) {
+			vt.showStatus(vt.getModelTask().getStatus());
+		}
+	}
+
+	/**
+	 * @return tick shown via {@link #showTick(int)} or {@link #showStatuses(int, IntIntMap)}, -1 if showing live statuses
+	 */
+	public int getReplayTick () {
+		return replayTick;
+	}
+
 	@Override public void validityChanged (ModelTask<E> task, boolean isValid) {
-		ViewTask<E> vt = find(viewRoot, task);
+		ViewTask<E> vt = modelToView.get(task);
 		if (vt == null) {
+			if (lazy)
+				return;
 			logger.log(TAG, "VT for" + task + " int validChanged not found!");
 			return;
 		}
 		vt.validChanged(isValid);
 	}
 
-	@Override public void rebuild () {
-		init(model);
+	@Override public void nodeAdded (ModelTask<E> task) {
+		ViewTask<E> parent = modelToView.get(task.getParent());
+		if (parent == null) {
+			if (!lazy)
+				logger.log(TAG, "VT for parent of " + task + " in nodeAdded not found!");
+			return;
+		}
+		if (!parent.populated) {
+			// created with the rest when parent is expanded
+			if (parent.getChildren().size == 0)
+				parent.add(createPlaceholder());
+			expand(parent);
+			return;
+		}
+		parent.insert(task.getIndexInParent(), initVT(task));
+		expand(parent);
 	}
 
-	private ViewTask<E> find (ViewTask<E> parent, ModelTask<E> task) {
-		// do we want ref only here?
-		if (parent.getModelTask() == task) {
-			return parent;
+	private void expand (ViewTask<E> vt) {
+		if (lazy) {
+			vt.setExpanded(true);
+		} else {
+			vt.expandAll();
 		}
-		for (Tree.Node node : parent.getChildren()) {
-			ViewTask<E> found = find((ViewTask<E>)node, task);
-			if (found != null)
-				return found;
+	}
+
+	@Override public void nodeRemoved (ModelTask<E> parent, ModelTask<E> task) {
+		ViewTask<E> vt = modelToView.get(task);
+		if (vt == null) {
+			if (lazy)
+				return;
+			logger.log(TAG, "VT for " + task + " in nodeRemoved not found!");
+			return;
+		}
+		if (vt == viewRoot) {
+			remove(viewRoot);
+			viewRoot = null;
+		} else {
+			vt.remove();
 		}
-		return null;
+		freeVT(vt);
+	}
+
+	@Override public void nodeMoved (ModelTask<E> from, ModelTask<E> task) {
+		ViewTask<E> vt = modelToView.get(task);
+		ViewTask<E> parent = modelToView.get(task.getParent());
+		if (lazy && (vt == null || parent == null || !parent.populated)) {
+			// moved from or to a part of the tree that has no view yet
+			if (vt != null) {
+				vt.remove();
+				freeVT(vt);
+			}
+			nodeAdded(task);
+			return;
+		}
+		if (vt == null || parent == null) {
+			logger.log(TAG, "VT for " + task + " in nodeMoved not found!");
+			return;
+		}
+		vt.remove();
+		parent.insert(task.getIndexInParent(), vt);
+		expand(parent);
+	}
+
+	@Override public void attributeChanged (ModelTask<E> task) {
+		ViewTask<E> vt = modelToView.get(task);
+		if (vt != null) {
+			vt.attributeChanged();
+		}
+	}
+
+	@Override public void nodeMaterialized (ModelTask<E> task) {
+		// view tasks are populated on expand
+	}
+
+	@Override public void rebuild () {
+		init(model);
 	}
 
 	public Pool<ViewPayload> getPayloadPool () {
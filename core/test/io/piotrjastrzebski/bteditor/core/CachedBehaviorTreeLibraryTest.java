@@ -0,0 +1,77 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class CachedBehaviorTreeLibraryTest {
+	private final static String TREE = "import walk:\"io.piotrjastrzebski.bteditor.core.dog.WalkTask\"\n" +
+		"import bark:\"io.piotrjastrzebski.bteditor.core.dog.BarkTask\"\n" +
+		"root\n" +
+		"  sequence\n" +
+		"    walk\n" +
+		"    bark\n";
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+	CachedBehaviorTreeLibrary library;
+
+	@Before public void setUp () throws Exception {
+		library = new CachedBehaviorTreeLibrary(new FileHandleResolver() {
+			@Override public FileHandle resolve (String fileName) {
+				return new FileHandle(new File(folder.getRoot(), fileName));
+			}
+		}, 2);
+		for (int i = 0; i < 3; i++) {
+			write("tree" + i + ".tree", 1000);
+		}
+	}
+
+	private void write (String name, long lastModified) {
+		File file = new File(folder.getRoot(), name);
+		new FileHandle(file).writeString(TREE, false);
+		assertTrue(file.setLastModified(lastModified));
+	}
+
+	@Test public void parsedOnce () {
+		Task<Dog> first = library.createRootTask("tree0.tree");
+		Task<Dog> second = library.createRootTask("tree0.tree");
+		assertEquals(1, library.getMissCount());
+		assertEquals(1, library.getHitCount());
+		// each include gets own copy
+		assertNotSame(first, second);
+		assertEquals(2, second.getChildCount());
+	}
+
+	@Test public void modifiedReparsed () {
+		library.createRootTask("tree0.tree");
+		write("tree0.tree", 2000);
+		library.createRootTask("tree0.tree");
+		assertEquals(2, library.getMissCount());
+		assertEquals(0, library.getHitCount());
+		assertEquals(1, library.getSize());
+	}
+
+	@Test public void leastRecentlyUsedEvicted () {
+		library.createRootTask("tree0.tree");
+		library.createRootTask("tree1.tree");
+		// tree0 is now most recently used
+		library.createRootTask("tree0.tree");
+		library.createRootTask("tree2.tree");
+		assertEquals(2, library.getSize());
+		assertEquals(1, library.getEvictionCount());
+
+		library.createRootTask("tree0.tree");
+		assertEquals(2, library.getHitCount());
+		library.createRootTask("tree1.tree");
+		assertEquals(4, library.getMissCount());
+	}
+}
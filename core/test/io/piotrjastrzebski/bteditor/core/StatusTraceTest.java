@@ -0,0 +1,135 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.utils.IntIntMap;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTask;
+import io.piotrjastrzebski.bteditor.core.model.ModelTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class StatusTraceTest {
+	File file;
+
+	@Before public void setUp () throws Exception {
+		file = File.createTempFile("trace", ".bttrace");
+	}
+
+	@After public void tearDown () throws Exception {
+		file.delete();
+	}
+
+	private BehaviorTree<Dog> createTree () {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		return tree;
+	}
+
+	private long record (int ticks) throws IOException {
+		StatusTraceWriter<Dog> writer = new StatusTraceWriter<>(createTree(), file);
+		for (int i = 0; i < ticks; i++) {
+			writer.step();
+		}
+		long count = writer.getCount();
+		writer.close();
+		return count;
+	}
+
+	@Test public void recordAndRead () throws IOException {
+		// more than a single index block
+		long count = record(5000);
+		try (StatusTraceReader reader = new StatusTraceReader(file)) {
+			assertEquals(count, reader.getCount());
+			assertTrue(count > StatusTraceReader.INDEX_INTERVAL);
+			assertEquals(3, reader.getTaskCount());
+			assertEquals(1, reader.getFirstTick());
+			assertEquals(5000, reader.getLastTick());
+			for (long i = 1; i < count; i++) {
+				assertTrue(reader.getTick(i - 1) <= reader.getTick(i));
+			}
+			for (int tick = 1; tick <= 5000; tick += 7) {
+				long found = reader.find(tick);
+				assertEquals(tick, reader.getTick(found));
+				if (found > 0)
+					assertTrue(reader.getTick(found - 1) < tick);
+			}
+			assertEquals(0, reader.find(-10));
+			assertEquals(count, reader.find(5001));
+		}
+	}
+
+	@Test public void statusesMatchLiveTree () throws IOException {
+		record(4000);
+		BehaviorTree<Dog> tree = createTree();
+		ModelTree<Dog> model = new ModelTree<>();
+		model.init(tree);
+		try (StatusTraceReader reader = new StatusTraceReader(file)) {
+			byte[] statuses = new byte[reader.getTaskCount()];
+			IntIntMap byModel = new IntIntMap();
+			for (int tick = 1; tick <= 4000; tick++) {
+				model.step();
+				if (tick % 13 != 0)
+					continue;
+				reader.statusesAt(tick, statuses);
+				assertEquals(tree.getChild(0).getStatus().ordinal(), statuses[0]);
+				assertEquals(tree.getChild(0).getChild(1).getStatus().ordinal(), statuses[2]);
+				reader.statusesAt(tick, model, byModel);
+				ModelTask<Dog> walk = model.getRootNode().getChild(1);
+				assertEquals(walk.getStatus().ordinal(), byModel.get(walk.getId(), -1));
+			}
+			reader.statusesAt(0, statuses);
+			assertEquals(Task.Status.FRESH.ordinal(), statuses[0]);
+		}
+	}
+
+	@Test public void lazyModelNotMaterialized () throws IOException {
+		Sequence<Dog> inner = new Sequence<>();
+		inner.addChild(new WalkTask());
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(inner);
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		StatusTraceWriter<Dog> writer = new StatusTraceWriter<>(tree, file);
+		for (int i = 0; i < 5; i++) {
+			writer.step();
+		}
+		writer.close();
+
+		ModelTree<Dog> model = new ModelTree<>();
+		model.setLazy(true);
+		model.init(tree);
+		// only the root is materialized
+		ModelTask<Dog> walk = model.getRootNode().getChild(1);
+		try (StatusTraceReader reader = new StatusTraceReader(file)) {
+			byte[] statuses = reader.statusesAt(5, new byte[reader.getTaskCount()]);
+			IntIntMap byModel = reader.statusesAt(5, model, new IntIntMap());
+			assertFalse(model.getRootNode().getChild(0).isMaterialized());
+			// ids of not materialized walk in inner sequence are skipped
+			assertEquals(statuses[3], byModel.get(walk.getId(), -1));
+			assertEquals(walk.getStatus().ordinal(), byModel.get(walk.getId(), -1));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void notATrace () throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.writeLong(42);
+			raf.writeLong(42);
+		}
+		new StatusTraceReader(file);
+	}
+}
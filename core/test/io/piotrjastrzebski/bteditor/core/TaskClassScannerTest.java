@@ -0,0 +1,63 @@
+package io.piotrjastrzebski.bteditor.core;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.CareTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class TaskClassScannerTest {
+	private final static String DOG = "io.piotrjastrzebski.bteditor.core.dog";
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test public void findsTasks () {
+		TaskClassScanner scanner = new TaskClassScanner();
+		Array<Class<? extends Task<?>>> classes = scanner.scan(DOG);
+		assertTrue(classes.contains(BarkTask.class, true));
+		assertTrue(classes.contains(CareTask.class, true));
+		assertTrue(classes.contains(WalkTask.class, true));
+		// not a task
+		assertFalse(classes.contains((Class)Dog.class, true));
+		assertTrue(scanner.getScannedCount() > 0);
+		assertEquals(0, scanner.getIndexedCount());
+	}
+
+	@Test public void indexReused () {
+		FileHandle index = new FileHandle(new File(folder.getRoot(), "tasks.index"));
+		TaskClassScanner scanner = new TaskClassScanner(getClass().getClassLoader(), index);
+		Array<Class<? extends Task<?>>> scanned = scanner.scan(DOG);
+		assertTrue(index.exists());
+
+		TaskClassScanner next = new TaskClassScanner(getClass().getClassLoader(), index);
+		Array<Class<? extends Task<?>>> indexed = next.scan(DOG);
+		assertEquals(0, next.getScannedCount());
+		assertEquals(scanner.getScannedCount(), next.getIndexedCount());
+		assertEquals(scanned, indexed);
+	}
+
+	@Test public void sameWithAnyThreads () {
+		// single root with more classes than fit in one job
+		TaskClassScanner serial = new TaskClassScanner();
+		serial.setThreads(1);
+		TaskClassScanner parallel = new TaskClassScanner();
+		parallel.setThreads(8);
+		Array<Class<? extends Task<?>>> classes = serial.scan("io.piotrjastrzebski.bteditor");
+		assertTrue(classes.contains(BarkTask.class, true));
+		assertEquals(classes, parallel.scan("io.piotrjastrzebski.bteditor"));
+	}
+
+	@Test public void unknownPackage () {
+		TaskClassScanner scanner = new TaskClassScanner();
+		assertEquals(0, scanner.scan("io.piotrjastrzebski.missing").size);
+	}
+}
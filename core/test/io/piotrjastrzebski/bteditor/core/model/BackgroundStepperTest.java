@@ -0,0 +1,125 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.LeafTask;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BackgroundStepperTest {
+	ModelTree<Dog> model;
+	StepScheduler scheduler;
+
+	@Before public void setUp () throws Exception {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		model = new ModelTree<>();
+		model.init(tree);
+		scheduler = new StepScheduler();
+	}
+
+	private void waitForTick (int tick, BackgroundStepper<Dog> stepper) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (model.getTick() < tick) {
+			assertTrue("Timed out waiting for tick " + tick, System.currentTimeMillis() < end);
+			stepper.drain();
+			Thread.sleep(1);
+		}
+	}
+
+	@Test public void stepsOnWorker () throws InterruptedException {
+		scheduler.setStepsPerFrame(10);
+		BackgroundStepper<Dog> stepper = new BackgroundStepper<>(model, scheduler, 8);
+		stepper.start();
+		assertSame(stepper, model.getStepper());
+		waitForTick(50, stepper);
+		// safe point, tree does not change while we edit
+		ModelTask<Dog> walk = model.add(model.getRootNode(), new WalkTask());
+		assertNotNull(walk);
+		waitForTick(model.getTick() + 20, stepper);
+		stepper.stop();
+		assertNull(model.getStepper());
+		assertFalse(stepper.isRunning());
+		assertEquals(0, stepper.getPendingEvents());
+		// events were applied on this thread
+		assertTrue(model.getTimeline().size() > 0);
+		assertNotNull(model.getTimeline().statusAt(walk.getId(), model.getTick()));
+	}
+
+	@Test public void editWhileSlowStep () throws InterruptedException {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new SlowTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		model.init(tree);
+		// every update is longer than a frame
+		scheduler.setTimeBudget(4);
+		BackgroundStepper<Dog> stepper = new BackgroundStepper<>(model, scheduler);
+		stepper.start();
+		waitForTick(2, stepper);
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			model.add(model.getRootNode(), new WalkTask());
+			long millis = (System.nanoTime() - start) / 1000000;
+			// a slow step or two, not seconds
+			assertTrue("Edit took " + millis + "ms", millis < 500);
+		}
+		stepper.stop();
+		assertEquals(6, model.getRootNode().getChildCount());
+		assertEquals(6, tree.getChild(0).getChildCount());
+	}
+
+	@Test(timeout = 10000) public void editWithFullQueue () throws InterruptedException {
+		scheduler.setStepsPerFrame(10);
+		BackgroundStepper<Dog> stepper = new BackgroundStepper<>(model, scheduler, 1);
+		stepper.start();
+		waitForTick(10, stepper);
+		for (int i = 0; i < 20; i++) {
+			model.add(model.getRootNode(), new WalkTask());
+			// worker fills the queue while we dont drain
+			Thread.sleep(5);
+			// cancels running walk on this thread, with the queue full
+			model.remove(model.getRootNode().getChild(0));
+		}
+		stepper.stop();
+		assertEquals(1, model.getRootNode().getChildCount());
+	}
+
+	public static class SlowTask extends LeafTask<Dog> {
+		@Override public Status execute () {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Status.SUCCEEDED;
+		}
+
+		@Override protected Task<Dog> copyTo (Task<Dog> task) {
+			return task;
+		}
+	}
+
+	@Test public void stepRequestWhilePaused () throws InterruptedException {
+		BackgroundStepper<Dog> stepper = new BackgroundStepper<>(model, scheduler);
+		stepper.setPaused(true);
+		stepper.start();
+		model.step();
+		model.step();
+		waitForTick(2, stepper);
+		stepper.stop();
+		assertEquals(2, model.getTick());
+		ModelTask<Dog> walk = model.getRootNode().getChild(0);
+		assertEquals(Task.Status.RUNNING, model.getTimeline().statusAt(walk.getId(), 2));
+		// back on this thread
+		model.step();
+		assertEquals(3, model.getTick());
+	}
+}
@@ -0,0 +1,118 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BreakpointTest {
+	ModelTree<Dog> model;
+	ModelTask<Dog> walk;
+	Dog dog;
+	StepScheduler scheduler;
+
+	@Before public void setUp () throws Exception {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		dog = new Dog("Dog");
+		tree.setObject(dog);
+		model = new ModelTree<>();
+		model.init(tree);
+		walk = model.getRootNode().getChild(0);
+		scheduler = new StepScheduler();
+		scheduler.setStepsPerFrame(10);
+	}
+
+	@Test public void breakOnStatus () {
+		Breakpoint<Dog> breakpoint = model.addBreakpoint(walk, Task.Status.SUCCEEDED);
+		// walk takes 3 ticks to succeed
+		assertEquals(3, scheduler.update(1, model));
+		assertTrue(model.isBreakpointHit());
+		assertSame(breakpoint, model.getHitBreakpoint());
+		assertEquals(3, model.getHitTick());
+		// stays on the breakpoint
+		assertEquals(0, scheduler.update(1, model));
+		model.clearBreakpointHit();
+		assertEquals(3, scheduler.update(1, model));
+		assertEquals(6, model.getHitTick());
+	}
+
+	@Test public void hitCount () {
+		Breakpoint<Dog> breakpoint = model.addBreakpoint(walk, Task.Status.SUCCEEDED);
+		breakpoint.setHitCount(3);
+		assertEquals(9, scheduler.update(1, model));
+		assertEquals(9, model.getHitTick());
+		assertEquals(0, breakpoint.getHits());
+	}
+
+	@Test public void condition () {
+		Breakpoint<Dog> breakpoint = model.addBreakpoint(walk, null);
+		breakpoint.setCondition(new Breakpoint.Condition<Dog>() {
+			@Override public boolean isMet (Dog dog) {
+				return "Rex".equals(dog.name);
+			}
+		});
+		assertEquals(10, scheduler.update(1, model));
+		assertFalse(model.isBreakpointHit());
+		dog.name = "Rex";
+		assertEquals(1, scheduler.update(1, model));
+		assertEquals(11, model.getHitTick());
+	}
+
+	@Test public void fastForward () {
+		model.addBreakpoint(walk, Task.Status.SUCCEEDED).setHitCount(1000);
+		scheduler.setFixedRate(-1);
+		scheduler.fastForward(-1);
+		int steps = 0;
+		while (scheduler.isFastForwarding() && steps < 100000) {
+			steps += scheduler.update(1, model);
+		}
+		assertFalse(scheduler.isFastForwarding());
+		assertEquals(3000, steps);
+		assertEquals(3000, model.getHitTick());
+	}
+
+	@Test public void background () throws InterruptedException {
+		Breakpoint<Dog> breakpoint = model.addBreakpoint(walk, Task.Status.SUCCEEDED);
+		BackgroundStepper<Dog> stepper = new BackgroundStepper<>(model, scheduler);
+		stepper.start();
+		long end = System.currentTimeMillis() + 5000;
+		while (!model.isBreakpointHit()) {
+			assertTrue("Timed out waiting for breakpoint", System.currentTimeMillis() < end);
+			Thread.sleep(1);
+		}
+		// worker would keep going for a while if it didnt check breakpoints itself
+		Thread.sleep(50);
+		stepper.stop();
+		assertSame(breakpoint, model.getHitBreakpoint());
+		assertEquals(3, model.getHitTick());
+		assertEquals(3, model.getTick());
+	}
+
+	@Test public void remove () {
+		Breakpoint<Dog> breakpoint = model.addBreakpoint(walk, null);
+		Breakpoint<Dog> other = model.addBreakpoint(walk, Task.Status.FAILED);
+		model.removeBreakpoint(breakpoint);
+		assertEquals(10, scheduler.update(1, model));
+		assertFalse(model.isBreakpointHit());
+		model.removeBreakpoint(other);
+		assertEquals(0, model.getBreakpoints().size);
+	}
+
+	@Test public void reset () {
+		model.addBreakpoint(walk, null);
+		model.reset();
+		assertEquals(0, model.getBreakpoints().size);
+		assertFalse(model.isBreakpointHit());
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void notInModel () {
+		model.addBreakpoint(new ModelTask<>(model), null);
+	}
+}
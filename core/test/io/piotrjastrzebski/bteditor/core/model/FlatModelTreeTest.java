@@ -0,0 +1,186 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.ai.btree.decorator.AlwaysFail;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
+import io.piotrjastrzebski.bteditor.core.BehaviorTreeWriter;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.RestTask;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class FlatModelTreeTest {
+	FlatModelTree<Dog> tree;
+	Selector<Dog> selector;
+	Sequence<Dog> sequence;
+	BarkTask bark;
+
+	@Before public void setUp () throws Exception {
+		/*
+		selector
+		  sequence
+		    bark
+		    walk
+		  alwaysFail
+		    rest
+		 */
+		selector = new Selector<>();
+		sequence = new Sequence<>();
+		bark = new BarkTask();
+		sequence.addChild(bark);
+		sequence.addChild(new WalkTask());
+		selector.addChild(sequence);
+		selector.addChild(new AlwaysFail<>(new RestTask()));
+		tree = new FlatModelTree<>(2);
+		tree.init(selector);
+	}
+
+	@Test public void init () {
+		assertEquals(6, tree.size());
+		int root = tree.getRoot();
+		assertEquals(selector, tree.getTask(root));
+		assertEquals(ModelTaskType.BRANCH, tree.getType(root));
+		assertEquals(2, tree.getChildCount(root));
+		int seq = tree.getChild(root, 0);
+		assertEquals(sequence, tree.getTask(seq));
+		assertEquals(root, tree.getParent(seq));
+		assertEquals(bark, tree.getTask(tree.getFirstChild(seq)));
+		assertEquals(1, tree.getIndexInParent(tree.getChild(seq, 1)));
+		assertTrue(tree.validate());
+	}
+
+	@Test public void find () {
+		int id = tree.find(bark);
+		assertNotEquals(FlatModelTree.NONE, id);
+		FlatModelTree.Node<Dog> node = tree.getNode(id);
+		assertEquals(bark, node.getTask());
+		assertEquals(sequence, node.getParent().getTask());
+		assertEquals(FlatModelTree.NONE, tree.find(new BarkTask()));
+	}
+
+	@Test public void insertRemove () {
+		int seq = tree.find(sequence);
+		RestTask rest = new RestTask();
+		int id = tree.insert(seq, 1, rest);
+		assertEquals(3, tree.getChildCount(seq));
+		assertEquals(1, tree.getIndexInParent(id));
+
+		tree.remove(seq);
+		assertEquals(3, tree.size());
+		assertEquals(FlatModelTree.NONE, tree.find(rest));
+		assertEquals(FlatModelTree.NONE, tree.find(bark));
+		// selector has one child left, still valid
+		assertTrue(tree.validate());
+
+		// freed ids are reused
+		int reused = tree.add(tree.getRoot(), new WalkTask());
+		assertTrue(reused < 7);
+		assertEquals(1, tree.getIndexInParent(reused));
+	}
+
+	@Test public void validate () {
+		int fail = tree.getChild(tree.getRoot(), 1);
+		tree.remove(tree.getFirstChild(fail));
+		assertFalse(tree.validate());
+		assertFalse(tree.isValid(fail));
+		assertTrue(tree.isValid(tree.find(sequence)));
+
+		tree.add(fail, new RestTask());
+		assertTrue(tree.validate());
+	}
+
+	@Test public void includeCheckedInBackground () {
+		final Array<Runnable> queued = new Array<>();
+		final ObjectSet<String> files = new ObjectSet<>();
+		SubtreePathResolver resolver = new SubtreePathResolver(new Executor() {
+			@Override public void execute (Runnable command) {
+				queued.add(command);
+			}
+		}, new SubtreePathResolver.PathChecker() {
+			@Override public boolean exists (String path) {
+				return files.contains(path);
+			}
+		});
+		// always stale, every check starts a new one
+		resolver.setTTL(-1);
+		tree.setPathResolver(resolver);
+		Include<Dog> include = new Include<>();
+		include.subtree = "sub.tree";
+		tree.add(tree.find(sequence), include);
+		// nothing is checked on this thread
+		assertFalse(tree.validate());
+		assertEquals(1, queued.size);
+
+		files.add("sub.tree");
+		for (Runnable runnable : queued) {
+			runnable.run();
+		}
+		queued.clear();
+		tree.update();
+		// validated again when the check is delivered
+		assertTrue(tree.isValid(tree.getRoot()));
+
+		// not cached for good, file may go away
+		files.remove("sub.tree");
+		tree.validate();
+		assertEquals(1, queued.size);
+		for (Runnable runnable : queued) {
+			runnable.run();
+		}
+		tree.update();
+		assertFalse(tree.isValid(tree.getRoot()));
+	}
+
+	@Test public void node () {
+		FlatModelTree.Node<Dog> seq = tree.getNode(tree.find(sequence));
+		assertSame(tree, seq.getModel());
+		assertEquals(bark, seq.find(bark).getTask());
+		assertEquals(seq, tree.getNode(tree.getRoot()).find(sequence));
+		// not below the node
+		assertNull(seq.find(selector));
+		assertNull(seq.find(new BarkTask()));
+		assertTrue(seq.validate());
+		tree.remove(tree.find(bark));
+		tree.remove(tree.getFirstChild(seq.getId()));
+		// sequence needs a child
+		assertFalse(seq.validate());
+	}
+
+	@Test public void serialize () {
+		assertEquals(BehaviorTreeWriter.serialize(selector), BehaviorTreeWriter.serialize(tree));
+		tree.setComment(tree.find(bark), "woof");
+		assertTrue(BehaviorTreeWriter.serialize(tree).contains("      # woof\n      bark"));
+	}
+
+	@Test public void large () {
+		// wide and deep generated tree
+		Selector<Dog> root = new Selector<>();
+		Task<Dog> parent = root;
+		for (int i = 0; i < 1000; i++) {
+			Sequence<Dog> seq = new Sequence<>();
+			for (int j = 0; j < 99; j++) {
+				seq.addChild(new WalkTask());
+			}
+			parent.addChild(seq);
+			// every 10th goes deeper
+			if (i % 10 == 0) parent = seq;
+		}
+		FlatModelTree<Dog> large = new FlatModelTree<>();
+		large.init(root);
+		assertEquals(1 + 1000 * 100, large.size());
+		assertTrue(large.validate());
+		assertEquals(BehaviorTreeWriter.serialize(root), BehaviorTreeWriter.serialize(large));
+		large.remove(large.getRoot());
+		assertEquals(0, large.size());
+	}
+}
@@ -260,4 +260,15 @@ public class ModelTaskActionTest {
 		boolean execute = remove.init(care, bark).execute();
 		assertFalse(execute);
 	}
+
+	@Test public void testPooled () throws Exception {
+		ModelTaskAction action = ModelTaskAction.add(selector, bark);
+		ModelTaskAction.free(action);
+		assertNull(action.task);
+		assertNull(action.target);
+		assertSame(action, ModelTaskAction.add(selector, walk));
+		assertEquals(walk, action.task);
+		// different type, different pool
+		assertNotSame(action, ModelTaskAction.remove(selector, walk));
+	}
 }
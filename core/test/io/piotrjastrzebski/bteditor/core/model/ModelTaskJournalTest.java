@@ -0,0 +1,153 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.RestTask;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ModelTaskJournalTest {
+	Selector<Dog> selector;
+	Sequence<Dog> sequence;
+	BarkTask bark;
+	WalkTask walk;
+	RestTask rest;
+
+	ModelTree<Dog> model;
+	ModelTask<Dog> root;
+	ModelTask<Dog> tSeq;
+
+	@Before public void setUp () throws Exception {
+		selector = new Selector<>();
+		sequence = new Sequence<>();
+		bark = new BarkTask();
+		walk = new WalkTask();
+		rest = new RestTask();
+		selector.addChild(walk);
+		selector.addChild(sequence);
+		sequence.addChild(rest);
+
+		model = new ModelTree<>();
+		root = new ModelTask<>(model);
+		root.init(selector);
+		tSeq = root.getChild(1);
+		model.executePending();
+		assertFalse(model.isDirty());
+	}
+
+	@Test public void initExecutesNothing () {
+		Selector<Dog> wide = new Selector<>();
+		for (int i = 0; i < 100; i++) {
+			wide.addChild(new WalkTask());
+		}
+		int coalesced = model.getCoalescedCount();
+		ModelTask<Dog> tWide = model.obtain();
+		tWide.init(wide);
+		model.executePending();
+		// children are where they should be already, nothing is executed
+		assertEquals(coalesced + 100, model.getCoalescedCount());
+		assertEquals(100, wide.getChildCount());
+		for (int i = 0; i < 100; i++) {
+			assertSame(tWide.getChild(i).getTask(), wide.getChild(i));
+		}
+	}
+
+	@Test public void addRemoveCancel () {
+		int coalesced = model.getCoalescedCount();
+		ModelTask<Dog> tBark = model.obtain();
+		tBark.init(bark);
+		root.addChild(tBark);
+		root.removeChild(tBark);
+		assertTrue(model.isDirty());
+
+		model.executePending();
+		assertFalse(model.isDirty());
+		assertEquals(2, selector.getChildCount());
+		assertEquals(coalesced + 2, model.getCoalescedCount());
+	}
+
+	@Test public void repeatedInsertFinalPosition () {
+		ModelTask<Dog> tBark = model.obtain();
+		tBark.init(bark);
+		root.insertChild(0, tBark);
+		root.removeChild(tBark);
+		root.insertChild(1, tBark);
+		root.removeChild(tBark);
+		root.insertChild(2, tBark);
+
+		model.executePending();
+		assertChildren(selector, walk, sequence, bark);
+	}
+
+	@Test public void moveBetweenTargets () {
+		ModelTask<Dog> tWalk = root.getChild(0);
+		root.removeChild(tWalk);
+		tSeq.insertChild(0, tWalk);
+
+		model.executePending();
+		assertChildren(selector, sequence);
+		assertChildren(sequence, walk, rest);
+	}
+
+	@Test public void moveWithinTarget () {
+		ModelTask<Dog> tWalk = root.getChild(0);
+		root.removeChild(tWalk);
+		root.addChild(tWalk);
+
+		model.executePending();
+		assertChildren(selector, sequence, walk);
+	}
+
+	@Test public void moveSeveralWithinTarget () {
+		ModelTask<Dog> tBark = model.obtain();
+		tBark.init(bark);
+		root.insertChild(0, tBark);
+		ModelTask<Dog> tRest = tSeq.removeChild(0);
+		root.insertChild(2, tRest);
+		model.executePending();
+		assertChildren(selector, bark, walk, rest, sequence);
+
+		// later inserts must not shift tasks moved before them
+		root.removeChild(tRest);
+		root.addChild(tRest);
+		root.removeChild(tBark);
+		root.addChild(tBark);
+		model.executePending();
+		assertChildren(selector, walk, sequence, rest, bark);
+	}
+
+	@Test public void removeAndInsertOthers () {
+		ModelTask<Dog> tBark = model.obtain();
+		tBark.init(bark);
+		root.insertChild(0, tBark);
+		root.removeChild(root.getChild(1));
+		ModelTask<Dog> tRest = tSeq.removeChild(0);
+		root.insertChild(1, tRest);
+
+		model.executePending();
+		assertChildren(selector, bark, rest, sequence);
+		assertEquals(0, sequence.getChildCount());
+	}
+
+	@Test public void forgetFreed () {
+		ModelTask<Dog> tSel = model.obtain();
+		tSel.init(new Selector<Dog>());
+		tSel.addChild(bark);
+		assertTrue(model.isDirty());
+		model.free(tSel);
+		assertFalse(model.isDirty());
+	}
+
+	private static void assertChildren (Task<Dog> task, Task... children) {
+		assertEquals(children.length, task.getChildCount());
+		for (int i = 0; i < children.length; i++) {
+			assertSame(children[i], task.getChild(i));
+		}
+	}
+}
@@ -348,6 +348,40 @@ public class ModelTaskTest {
 		assertFalse(model.isDirty());
 	}
 
+	@Test public void validateDirtyOnly () {
+		Selector<Dog> other = new Selector<>();
+		other.addChild(walk);
+		selector.addChild(other);
+		selector.addChild(alwaysFail);
+		alwaysFail.addChild(bark);
+		root.init(selector);
+		assertTrue(root.isValid());
+		assertFalse(root.isPendingValidation());
+
+		ModelTask<Dog> tOther = root.getChild(0);
+		ModelTask<Dog> tFail = root.getChild(1);
+		ModelTask<Dog> tBark = tFail.getChild(0);
+		tBark.markDirty();
+		assertTrue(tBark.isPendingValidation());
+		assertTrue(tFail.isPendingValidation());
+		assertTrue(root.isPendingValidation());
+		// siblings are not touched
+		assertFalse(tOther.isPendingValidation());
+
+		assertTrue(root.validate());
+		assertFalse(root.isPendingValidation());
+		assertFalse(tBark.isPendingValidation());
+
+		// invalid child makes all parents invalid
+		tOther.removeChild(0);
+		assertFalse(tOther.isValid());
+		assertFalse(root.validate());
+		assertTrue(tFail.isValid());
+
+		tOther.addChild(walk);
+		assertTrue(root.validate());
+	}
+
 	@Test public void reset () {
 		selector.addChild(care);
 		selector.addChild(alwaysFail);
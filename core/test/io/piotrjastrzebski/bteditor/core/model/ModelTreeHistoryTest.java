@@ -0,0 +1,154 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.ai.utils.random.ConstantIntegerDistribution;
+import com.badlogic.gdx.ai.utils.random.IntegerDistribution;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.RestTask;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ModelTreeHistoryTest {
+	ModelTree<Dog> model;
+	ModelTask<Dog> root;
+	ModelTask<Dog> seq;
+
+	@Before public void setUp () throws Exception {
+		Selector<Dog> selector = new Selector<>();
+		selector.addChild(new RestTask());
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new BarkTask());
+		sequence.addChild(new WalkTask());
+		selector.addChild(sequence);
+
+		BehaviorTree<Dog> tree = new BehaviorTree<>(selector);
+		tree.setObject(new Dog("Dog A"));
+		model = new ModelTree<>();
+		model.init(tree);
+		root = model.getRootNode();
+		seq = root.getChild(1);
+		assertFalse(model.canUndo());
+	}
+
+	@Test public void undoAdd () {
+		BarkTask bark = new BarkTask();
+		ModelTask<Dog> added = model.insert(seq, bark, 0);
+		assertTrue(model.undo());
+		assertEquals(2, seq.getChildCount());
+		assertNull(added.getParent());
+		assertTrue(model.canRedo());
+
+		assertTrue(model.redo());
+		assertEquals(added, seq.getChild(0));
+		model.executePending();
+		assertEquals(bark, seq.getTask().getChild(0));
+	}
+
+	@Test public void undoRemove () {
+		ModelTask<Dog> bark = seq.getChild(0);
+		Task<Dog> btBark = bark.getTask();
+		model.trash(bark);
+		// kept alive by the history
+		assertEquals(btBark, bark.getTask());
+
+		assertTrue(model.undo());
+		assertEquals(bark, seq.getChild(0));
+		model.executePending();
+		assertEquals(btBark, seq.getTask().getChild(0));
+
+		assertTrue(model.redo());
+		assertEquals(1, seq.getChildCount());
+	}
+
+	@Test public void undoMove () {
+		ModelTask<Dog> rest = root.getChild(0);
+		model.move(seq, rest, 1);
+		assertEquals(rest, seq.getChild(1));
+
+		assertTrue(model.undo());
+		assertEquals(rest, root.getChild(0));
+		assertEquals(2, seq.getChildCount());
+
+		assertTrue(model.redo());
+		assertEquals(rest, seq.getChild(1));
+	}
+
+	@Test public void undoAttribute () throws Exception {
+		ModelTask<Dog> bark = seq.getChild(0);
+		BarkTask btBark = (BarkTask)bark.getTask();
+		Field times = ClassReflection.getField(BarkTask.class, "times");
+		IntegerDistribution before = btBark.times;
+		// typing in a field, merged into single change
+		for (int i = 2; i <= 4; i++) {
+			IntegerDistribution after = new ConstantIntegerDistribution(i);
+			btBark.times = after;
+			bark.attributeChanged(times, before, after);
+			before = after;
+		}
+
+		assertTrue(model.undo());
+		assertEquals(ConstantIntegerDistribution.ONE, btBark.times);
+		assertFalse(model.canUndo());
+		assertTrue(model.redo());
+		assertEquals(before, btBark.times);
+	}
+
+	@Test public void transaction () {
+		model.beginTransaction();
+		model.add(seq, new BarkTask());
+		model.add(seq, new BarkTask());
+		model.remove(root.getChild(0));
+		model.endTransaction();
+
+		assertTrue(model.undo());
+		assertEquals(2, root.getChildCount());
+		assertEquals(2, seq.getChildCount());
+		assertFalse(model.canUndo());
+	}
+
+	@Test public void newChangeClearsRedo () {
+		model.add(seq, new BarkTask());
+		model.undo();
+		assertTrue(model.canRedo());
+		model.add(seq, new WalkTask());
+		assertFalse(model.canRedo());
+	}
+
+	@Test public void sizeCap () {
+		model.setHistorySize(2);
+		for (int i = 0; i < 3; i++) {
+			model.add(seq, new BarkTask());
+		}
+		assertTrue(model.undo());
+		assertTrue(model.undo());
+		assertFalse(model.undo());
+		assertEquals(3, seq.getChildCount());
+	}
+
+	@Test public void droppedRemovedFreed () {
+		model.setHistorySize(1);
+		ModelTask<Dog> bark = seq.getChild(0);
+		model.trash(bark);
+		assertNotNull(bark.getTask());
+		// pushes remove out of the history
+		model.add(seq, new BarkTask());
+		assertNull(bark.getTask());
+	}
+
+	@Test public void disabled () {
+		model.setHistorySize(0);
+		ModelTask<Dog> bark = seq.getChild(0);
+		model.trash(bark);
+		assertNull(bark.getTask());
+		assertFalse(model.canUndo());
+	}
+}
@@ -6,6 +6,9 @@ import com.badlogic.gdx.ai.btree.branch.Parallel;
 import com.badlogic.gdx.ai.btree.branch.Selector;
 import com.badlogic.gdx.ai.btree.branch.Sequence;
 import com.badlogic.gdx.ai.btree.decorator.AlwaysFail;
+import com.badlogic.gdx.ai.utils.random.ConstantIntegerDistribution;
+import com.badlogic.gdx.utils.Array;
+import io.piotrjastrzebski.bteditor.core.BehaviorTreeWriter;
 import io.piotrjastrzebski.bteditor.core.dog.*;
 import org.junit.After;
 import org.junit.Before;
@@ -169,6 +172,241 @@ public class ModelTreeTest {
 		assertTrue(model.isValid());
 	}
 
+	@Test public void removeByTask () {
+		ModelTask<Dog> bark = root.getChild(1).getChild(0);
+		ModelTask<Dog> removed = model.remove(bark.getTask());
+		assertEquals(bark, removed);
+		// no longer in the model
+		assertNull(model.remove(bark.getTask()));
+		assertEquals(1, root.getChild(1).getChildCount());
+	}
+
+	@Test public void removeAddedByTask () {
+		BarkTask bark = new BarkTask();
+		ModelTask<Dog> seq = root.getChild(1);
+		ModelTask<Dog> added = model.add(seq, bark);
+		assertEquals(added, model.remove(bark));
+		assertNull(model.remove(bark));
+		assertEquals(2, seq.getChildCount());
+	}
+
+	@Test public void poolReuse () {
+		ModelTask<Dog> task = model.obtain();
+		task.init(new BarkTask());
+		model.free(task);
+		assertNull(task.getTask());
+		assertEquals(task, model.obtain());
+	}
+
+	@Test public void poolReuseChildren () {
+		ModelTask<Dog> seq = root.getChild(1);
+		model.remove(seq);
+		ModelTask<Dog> bark = seq.getChild(0);
+		model.free(seq);
+		assertEquals(0, seq.getChildCount());
+		assertNull(bark.getTask());
+	}
+
+	@Test(expected = IllegalStateException.class) public void poolDoubleFree () {
+		model.setDebugPool(true);
+		ModelTask<Dog> task = model.obtain();
+		model.free(task);
+		model.free(task);
+	}
+
+	@Test(expected = IllegalStateException.class) public void poolUseAfterFree () {
+		model.setDebugPool(true);
+		ModelTask<Dog> task = model.obtain();
+		task.init(new BarkTask());
+		model.free(task);
+		task.getTask();
+	}
+
+	@Test public void structuralEvents () {
+		final StringBuilder events = new StringBuilder();
+		model.addListener(new ModelTree.Listener<Dog>() {
+			@Override public void statusChanged (ModelTask<Dog> task, Task.Status from, Task.Status to) {}
+
+			@Override public void validityChanged (ModelTask<Dog> task, boolean isValid) {}
+
+			@Override public void nodeAdded (ModelTask<Dog> task) {
+				events.append("added ").append(task.getName()).append(task.getIndexInParent()).append(';');
+			}
+
+			@Override public void nodeRemoved (ModelTask<Dog> parent, ModelTask<Dog> task) {
+				events.append("removed ").append(task.getName()).append(';');
+			}
+
+			@Override public void nodeMoved (ModelTask<Dog> from, ModelTask<Dog> task) {
+				events.append("moved ").append(task.getName()).append(task.getIndexInParent()).append(';');
+			}
+
+			@Override public void attributeChanged (ModelTask<Dog> task) {
+				events.append("changed ").append(task.getName()).append(';');
+			}
+
+			@Override public void nodeMaterialized (ModelTask<Dog> task) {}
+
+			@Override public void rebuild () {
+				events.append("rebuild;");
+			}
+		});
+		ModelTask<Dog> seq = root.getChild(1);
+		ModelTask<Dog> bark = model.insert(seq, new BarkTask(), 0);
+		model.move(seq, bark, 2);
+		bark.attributesChanged();
+		model.remove(bark);
+		assertEquals("added BarkTask0;moved BarkTask2;changed BarkTask;removed BarkTask;", events.toString());
+	}
+
+	@Test public void hashChanges () {
+		long hash = model.getHash();
+		assertEquals(hash, model.getHash());
+		assertFalse(model.isChangedSinceSave());
+
+		ModelTask<Dog> seq = root.getChild(1);
+		ModelTask<Dog> bark = model.add(seq, new BarkTask());
+		assertNotEquals(hash, model.getHash());
+		assertTrue(model.isChangedSinceSave());
+
+		model.remove(bark);
+		assertEquals(hash, model.getHash());
+		assertFalse(model.isChangedSinceSave());
+
+		seq.getChild(0).setComment("woof");
+		assertNotEquals(hash, model.getHash());
+	}
+
+	@Test public void hashOnlyAncestors () {
+		model.getHash();
+		ModelTask<Dog> parallel = root.getChild(0);
+		ModelTask<Dog> bark = root.getChild(1).getChild(0);
+		((BarkTask)bark.getTask()).times = new ConstantIntegerDistribution(3);
+		bark.attributesChanged();
+		assertTrue(bark.hashDirty);
+		assertTrue(root.hashDirty);
+		assertFalse(parallel.hashDirty);
+		assertFalse(root.getChild(1).getChild(1).hashDirty);
+	}
+
+	@Test public void serializeMemoized () {
+		String serialized = model.serialize();
+		assertSame(serialized, model.serialize());
+		model.add(root.getChild(1), new BarkTask());
+		assertNotSame(serialized, model.serialize());
+	}
+
+	@Test public void duplicates () {
+		assertEquals(0, model.findDuplicates().size);
+		ModelTask<Dog> seq = root.getChild(1);
+		ModelTask<Dog> copy = seq.createClone();
+		model.add(root, copy);
+		Array<Array<ModelTask<Dog>>> duplicates = model.findDuplicates();
+		// nested copies are not reported
+		assertEquals(1, duplicates.size);
+		assertTrue(duplicates.first().contains(seq, true));
+		assertTrue(duplicates.first().contains(copy, true));
+
+		((BarkTask)copy.getChild(0).getTask()).times = new ConstantIntegerDistribution(3);
+		copy.getChild(0).attributesChanged();
+		assertEquals(0, model.findDuplicates().size);
+	}
+
+	@Test public void isValidDoesNotApplyChanges () {
+		// direct change, not through the model
+		root.getChild(1).markDirty();
+		assertTrue(root.isPendingValidation());
+		model.isValid();
+		assertTrue(root.isPendingValidation());
+		model.validate();
+		assertFalse(root.isPendingValidation());
+	}
+
+	private ModelTree<Dog> createLazy () {
+		BehaviorTree<Dog> tree = new BehaviorTree<>(createDogBehavior());
+		tree.setObject(new Dog("Dog A"));
+		ModelTree<Dog> lazy = new ModelTree<>();
+		lazy.setLazy(true);
+		lazy.init(tree);
+		return lazy;
+	}
+
+	@Test public void lazyInit () {
+		ModelTree<Dog> lazy = createLazy();
+		ModelTask<Dog> lazyRoot = lazy.getRootNode();
+		assertFalse(lazyRoot.isMaterialized());
+		assertTrue(lazyRoot.hasChildren());
+		// same structure, without materializing anything
+		assertEquals(model.getHash(), lazy.getHash());
+		assertFalse(lazyRoot.isMaterialized());
+
+		assertEquals(2, lazyRoot.getChildCount());
+		assertTrue(lazyRoot.isMaterialized());
+		ModelTask<Dog> seq = lazyRoot.getChild(1);
+		assertFalse(seq.isMaterialized());
+		assertSame(seq, lazy.find(seq.getTask()));
+	}
+
+	@Test public void lazyFind () {
+		ModelTree<Dog> lazy = createLazy();
+		Task<Dog> rest = lazy.getRootNode().getTask().getChild(0).getChild(1).getChild(0);
+		ModelTask<Dog> found = lazy.find(rest);
+		assertNotNull(found);
+		assertSame(rest, found.getTask());
+		assertTrue(lazy.getRootNode().isMaterialized());
+		// only the path to the task is materialized
+		ModelTask<Dog> lazyRoot = lazy.getRootNode();
+		assertTrue(lazyRoot.getChild(0).isMaterialized());
+		assertFalse(lazyRoot.getChild(1).isMaterialized());
+		assertNull(lazy.find(new BarkTask()));
+	}
+
+	@Test public void lazyAdd () {
+		ModelTree<Dog> lazy = createLazy();
+		ModelTask<Dog> seq = lazy.getRootNode().getChild(1);
+		assertFalse(seq.isMaterialized());
+		lazy.add(seq, new BarkTask());
+		assertTrue(seq.isMaterialized());
+		assertEquals(3, seq.getChildCount());
+		lazy.executePending();
+		assertEquals(3, seq.getTask().getChildCount());
+		assertSame(seq.getChild(2).getTask(), seq.getTask().getChild(2));
+	}
+
+	private ModelTree<Dog> createCommented (boolean lazy) {
+		ModelTree<Dog> model = new ModelTree<>();
+		model.setLazy(lazy);
+		model.setCommentSource(new ModelTree.CommentSource() {
+			@Override public String getComment (Task<?> task) {
+				return task instanceof WalkTask ? "walk it" : null;
+			}
+		});
+		model.init(new BehaviorTree<>(createDogBehavior()));
+		return model;
+	}
+
+	@Test public void lazyNotMaterialized () {
+		ModelTree<Dog> eager = createCommented(false);
+		ModelTree<Dog> lazy = createCommented(true);
+		ModelTask<Dog> lazyRoot = lazy.getRootNode();
+		// same tree, same hash and same file
+		assertEquals(eager.getHash(), lazy.getHash());
+		assertEquals(BehaviorTreeWriter.serialize(eager.getRootNode()), BehaviorTreeWriter.serialize(lazyRoot));
+		assertTrue(BehaviorTreeWriter.serialize(lazyRoot).contains("# walk it"));
+		assertEquals(0, lazy.findDuplicates().size);
+		assertFalse(lazyRoot.isMaterialized());
+	}
+
+	@Test public void lazyChangedSinceSave () {
+		ModelTree<Dog> lazy = createLazy();
+		lazy.markSaved();
+		long hash = lazy.getHash();
+		// materialized below a parent that was already hashed
+		lazy.getRootNode().getChild(0).getChild(0).setComment("edited");
+		assertNotEquals(hash, lazy.getHash());
+		assertTrue(lazy.isChangedSinceSave());
+	}
+
 	private static Task<Dog> createDogBehavior () {
 		/* this is eq tree to one made in code below
 		selector
@@ -0,0 +1,79 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.utils.IntIntMap;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatusTimelineTest {
+
+	@Test public void wrapsAround () {
+		StatusTimeline timeline = new StatusTimeline(3);
+		for (int i = 1; i <= 5; i++) {
+			timeline.record(i, i, Task.Status.FRESH, Task.Status.RUNNING);
+		}
+		assertEquals(3, timeline.size());
+		assertEquals(3, timeline.getOldestTick());
+		assertEquals(5, timeline.getNewestTick());
+		assertEquals(3, timeline.getId(0));
+		assertEquals(5, timeline.getId(2));
+		assertEquals(Task.Status.FRESH, timeline.getFrom(2));
+		assertEquals(Task.Status.RUNNING, timeline.getTo(2));
+		// overwritten
+		assertNull(timeline.statusAt(1, 5));
+
+		timeline.clear();
+		assertEquals(0, timeline.size());
+		assertEquals(0, timeline.getNewestTick());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroCapacity () {
+		new StatusTimeline(0);
+	}
+
+	@Test public void statusesAt () {
+		StatusTimeline timeline = new StatusTimeline(8);
+		timeline.record(1, 1, Task.Status.FRESH, Task.Status.RUNNING);
+		timeline.record(2, 1, Task.Status.RUNNING, Task.Status.SUCCEEDED);
+		timeline.record(2, 2, Task.Status.FRESH, Task.Status.FAILED);
+		IntIntMap out = timeline.statusesAt(1, new IntIntMap());
+		assertEquals(1, out.size);
+		assertEquals(Task.Status.RUNNING.ordinal(), out.get(1, -1));
+		timeline.statusesAt(2, out);
+		assertEquals(Task.Status.SUCCEEDED.ordinal(), out.get(1, -1));
+		assertEquals(Task.Status.FAILED.ordinal(), out.get(2, -1));
+		assertEquals(Task.Status.RUNNING, timeline.statusAt(1, 1));
+		assertNull(timeline.statusAt(2, 1));
+	}
+
+	@Test public void recordsModelSteps () {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		ModelTree<Dog> model = new ModelTree<>();
+		model.init(tree);
+		// walk takes 3 ticks to succeed
+		for (int i = 0; i < 3; i++) {
+			model.step();
+		}
+		assertEquals(3, model.getTick());
+		StatusTimeline timeline = model.getTimeline();
+		assertTrue(timeline.size() > 0);
+		ModelTask<Dog> walk = model.getRootNode().getChild(0);
+		assertSame(walk, model.getTask(walk.getId()));
+		assertEquals(Task.Status.RUNNING, timeline.statusAt(walk.getId(), 1));
+		assertEquals(Task.Status.SUCCEEDED, timeline.statusAt(walk.getId(), 3));
+		assertEquals(Task.Status.SUCCEEDED, timeline.statusAt(model.getRootNode().getId(), 3));
+
+		model.reset();
+		assertEquals(0, model.getTick());
+		assertEquals(0, timeline.size());
+	}
+}
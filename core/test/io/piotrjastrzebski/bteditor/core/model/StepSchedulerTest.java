@@ -0,0 +1,81 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StepSchedulerTest {
+	ModelTree<Dog> model;
+	StepScheduler scheduler;
+
+	@Before public void setUp () throws Exception {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		model = new ModelTree<>();
+		model.init(tree);
+		scheduler = new StepScheduler();
+	}
+
+	@Test public void fixedRate () {
+		scheduler.setFixedRate(0.5f);
+		assertEquals(0, scheduler.update(0.3f, model));
+		assertEquals(1, scheduler.update(0.3f, model));
+		// no catching up
+		assertEquals(1, scheduler.update(5f, model));
+		assertEquals(0, scheduler.update(0.1f, model));
+
+		scheduler.setFixedRate(-1);
+		assertEquals(0, scheduler.update(5f, model));
+	}
+
+	@Test public void stepsPerFrame () {
+		scheduler.setStepsPerFrame(10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(10, scheduler.update(0.1f, model));
+		}
+		assertEquals(100, scheduler.getTotalSteps());
+		assertEquals(100, scheduler.getStepsPerSecond(), 1);
+	}
+
+	@Test public void timeBudget () {
+		scheduler.setTimeBudget(2);
+		assertTrue(scheduler.update(0.016f, model) > 0);
+	}
+
+	@Test public void sharedBudget () {
+		scheduler.setTimeBudget(100);
+		// out of time after first step
+		assertEquals(1, scheduler.update(0.016f, model, 0));
+		assertTrue(scheduler.usesBudget());
+	}
+
+	@Test public void fastForward () {
+		scheduler.setFixedRate(1);
+		final int[] checks = {0};
+		scheduler.fastForward(new StepScheduler.Condition() {
+			@Override public boolean isMet () {
+				return checks[0]++ == 5;
+			}
+		}, -1);
+		assertTrue(scheduler.isFastForwarding());
+		assertEquals(5, scheduler.update(0.016f, model));
+		assertFalse(scheduler.isFastForwarding());
+		// back to fixed rate
+		assertEquals(0, scheduler.update(0.016f, model));
+
+		scheduler.fastForward(new StepScheduler.Condition() {
+			@Override public boolean isMet () {
+				return false;
+			}
+		}, 3);
+		assertEquals(3, scheduler.update(0.016f, model));
+		assertFalse(scheduler.isFastForwarding());
+	}
+}
@@ -0,0 +1,99 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class SubtreePathResolverTest {
+	Array<Runnable> queued;
+	ObjectSet<String> files;
+	SubtreePathResolver resolver;
+
+	@Before public void setUp () throws Exception {
+		queued = new Array<>();
+		files = new ObjectSet<>();
+		files.add("sub.tree");
+		// checks run when we say so
+		resolver = new SubtreePathResolver(new Executor() {
+			@Override public void execute (Runnable command) {
+				queued.add(command);
+			}
+		}, new SubtreePathResolver.PathChecker() {
+			@Override public boolean exists (String path) {
+				return files.contains(path);
+			}
+		});
+	}
+
+	private void runQueued () {
+		for (Runnable runnable : queued) {
+			runnable.run();
+		}
+		queued.clear();
+	}
+
+	@Test public void pendingUntilChecked () {
+		assertEquals(SubtreePathResolver.PENDING, resolver.check("sub.tree"));
+		assertEquals(SubtreePathResolver.PENDING, resolver.check("sub.tree"));
+		// single check per path
+		assertEquals(1, queued.size);
+		assertEquals(0, resolver.update());
+
+		runQueued();
+		assertEquals(SubtreePathResolver.PENDING, resolver.check("sub.tree"));
+		assertEquals(1, resolver.update());
+		assertEquals(SubtreePathResolver.EXISTS, resolver.check("sub.tree"));
+		assertEquals(0, queued.size);
+
+		resolver.check("other.tree");
+		runQueued();
+		resolver.update();
+		assertEquals(SubtreePathResolver.MISSING, resolver.check("other.tree"));
+		assertEquals(SubtreePathResolver.MISSING, resolver.check(""));
+	}
+
+	@Test public void refreshedAfterTTL () {
+		resolver.setTTL(-1);
+		resolver.check("sub.tree");
+		runQueued();
+		resolver.update();
+		files.remove("sub.tree");
+		// old state until refreshed
+		assertEquals(SubtreePathResolver.EXISTS, resolver.check("sub.tree"));
+		runQueued();
+		resolver.update();
+		assertEquals(SubtreePathResolver.MISSING, resolver.check("sub.tree"));
+	}
+
+	@Test public void includeRevalidated () {
+		Selector<Dog> selector = new Selector<>();
+		selector.addChild(new Include<Dog>("sub.tree", true));
+		selector.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(selector);
+		tree.setObject(new Dog("Dog A"));
+		ModelTree<Dog> model = new ModelTree<>();
+		model.setPathResolver(resolver);
+		model.init(tree);
+
+		ModelTask<Dog> include = model.getRootNode().getChild(0);
+		assertTrue(include.isResolving());
+		assertFalse(include.isValid());
+		assertFalse(model.isValid());
+
+		runQueued();
+		model.update();
+		assertFalse(include.isResolving());
+		assertTrue(include.isValid());
+		assertTrue(model.isValid());
+	}
+}
@@ -0,0 +1,77 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.LeafTask;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.annotation.TaskAttribute;
+import com.badlogic.gdx.ai.btree.branch.Parallel;
+import com.badlogic.gdx.ai.btree.branch.Selector;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.ai.btree.decorator.AlwaysFail;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.ai.utils.random.ConstantIntegerDistribution;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.RestTask;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskCopierTest {
+
+	public static class FastTask extends LeafTask<Dog> {
+		@TaskAttribute public int times = 1;
+		@TaskAttribute public String name;
+		transient int running;
+
+		@Override public Status execute () {
+			return Status.SUCCEEDED;
+		}
+
+		@Override protected Task<Dog> copyTo (Task<Dog> task) {
+			((FastTask)task).times = times;
+			((FastTask)task).name = name;
+			return task;
+		}
+	}
+
+	@Test public void fastForAttributesOnly () {
+		assertTrue(TaskLibrary.getMetadata(FastTask.class).getCopier().isFast());
+		assertTrue(TaskLibrary.getMetadata(Sequence.class).getCopier().isFast());
+		assertTrue(TaskLibrary.getMetadata(Parallel.class).getCopier().isFast());
+		// has state that is not an attribute
+		assertFalse(TaskLibrary.getMetadata(BarkTask.class).getCopier().isFast());
+		assertFalse(TaskLibrary.getMetadata(Include.class).getCopier().isFast());
+	}
+
+	@Test public void copiesTree () {
+		Selector<Dog> selector = new Selector<>();
+		Sequence<Dog> sequence = new Sequence<>();
+		selector.addChild(sequence);
+		FastTask fast = new FastTask();
+		fast.times = 5;
+		fast.name = "fast";
+		fast.running = 3;
+		sequence.addChild(fast);
+		BarkTask bark = new BarkTask();
+		bark.times = new ConstantIntegerDistribution(2);
+		sequence.addChild(bark);
+		selector.addChild(new AlwaysFail<>(new RestTask()));
+		selector.setGuard(new FastTask());
+
+		Task<Dog> copy = TaskCopier.copyTask(selector);
+		assertNotSame(selector, copy);
+		assertEquals(Selector.class, copy.getClass());
+		assertEquals(2, copy.getChildCount());
+		assertNotNull(copy.getGuard());
+		assertNotSame(selector.getGuard(), copy.getGuard());
+
+		FastTask fastCopy = (FastTask)copy.getChild(0).getChild(0);
+		assertNotSame(fast, fastCopy);
+		assertEquals(5, fastCopy.times);
+		assertEquals("fast", fastCopy.name);
+		assertEquals(0, fastCopy.running);
+		assertEquals(1, copy.getChild(1).getChildCount());
+		// same as gdx-ai clone
+		assertEquals(ModelTaskHash.hashTree(selector.cloneTask()), ModelTaskHash.hashTree(copy));
+	}
+}
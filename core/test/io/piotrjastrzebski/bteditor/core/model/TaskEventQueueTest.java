@@ -0,0 +1,62 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskEventQueueTest {
+
+	@Test public void fullAndDrain () {
+		TaskEventQueue<Dog> queue = new TaskEventQueue<>(3);
+		assertEquals(4, queue.getCapacity());
+		WalkTask task = new WalkTask();
+		for (int i = 0; i < 4; i++) {
+			assertTrue(queue.offer(task, i, 0, 0));
+		}
+		assertFalse(queue.offer(task, 4, 0, 0));
+		assertEquals(4, queue.size());
+		final int[] next = {0};
+		assertEquals(4, queue.drain(new TaskEventQueue.Handler<Dog>() {
+			@Override public void event (Task<Dog> task, int a, int b, int c) {
+				assertEquals(next[0]++, a);
+			}
+		}));
+		assertEquals(0, queue.size());
+		assertTrue(queue.offer(task, 4, 0, 0));
+	}
+
+	@Test public void keepsOrderAcrossThreads () throws InterruptedException {
+		final TaskEventQueue<Dog> queue = new TaskEventQueue<>(64);
+		final int count = 200000;
+		final WalkTask task = new WalkTask();
+		Thread producer = new Thread(new Runnable() {
+			@Override public void run () {
+				for (int i = 0; i < count; i++) {
+					while (!queue.offer(task, i, i + 1, i + 2)) {
+						Thread.yield();
+					}
+				}
+			}
+		});
+		producer.start();
+		final int[] next = {0};
+		TaskEventQueue.Handler<Dog> handler = new TaskEventQueue.Handler<Dog>() {
+			@Override public void event (Task<Dog> t, int a, int b, int c) {
+				assertSame(task, t);
+				assertEquals(next[0], a);
+				assertEquals(next[0] + 1, b);
+				assertEquals(next[0] + 2, c);
+				next[0]++;
+			}
+		};
+		while (next[0] < count) {
+			if (queue.drain(handler) == 0)
+				Thread.yield();
+		}
+		producer.join();
+		assertEquals(0, queue.size());
+	}
+}
@@ -0,0 +1,57 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.ai.btree.decorator.AlwaysFail;
+import com.badlogic.gdx.ai.btree.decorator.Include;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.CareTask;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskMetadataTest {
+
+	@Test public void sharedPerClass () {
+		TaskMetadata metadata = TaskLibrary.getMetadata(CareTask.class);
+		assertSame(metadata, TaskLibrary.getMetadata(CareTask.class));
+		assertNotSame(metadata, TaskLibrary.getMetadata(BarkTask.class));
+	}
+
+	@Test public void attributes () throws ReflectionException {
+		TaskMetadata care = TaskLibrary.getMetadata(CareTask.class);
+		assertEquals(2, care.getAttributes().length);
+		assertEquals(2, care.getRequired().length);
+		TaskMetadata.Attribute name = care.getAttribute("name");
+		assertNotNull(name);
+		assertEquals(TaskMetadata.Attribute.STRING, name.getKind());
+		CareTask task = new CareTask();
+		name.set(task, "care");
+		assertEquals("care", task.name);
+		assertEquals("care", name.get(task));
+
+		TaskMetadata bark = TaskLibrary.getMetadata(BarkTask.class);
+		assertEquals(0, bark.getRequired().length);
+		assertEquals(TaskMetadata.Attribute.DISTRIBUTION, bark.getAttribute("times").getKind());
+		assertNull(bark.getAttribute("missing"));
+	}
+
+	@Test public void childConstraints () {
+		TaskMetadata leaf = TaskLibrary.getMetadata(WalkTask.class);
+		assertTrue(leaf.isChildCountValid(0));
+		assertFalse(leaf.isChildCountValid(1));
+
+		TaskMetadata branch = TaskLibrary.getMetadata(Sequence.class);
+		assertFalse(branch.isChildCountValid(0));
+		assertTrue(branch.isChildCountValid(100));
+
+		TaskMetadata decorator = TaskLibrary.getMetadata(AlwaysFail.class);
+		assertTrue(decorator.isChildCountValid(1));
+		assertFalse(decorator.isChildCountValid(2));
+
+		// subtree is not our child
+		TaskMetadata include = TaskLibrary.getMetadata(Include.class);
+		assertTrue(include.isChildCountValid(0));
+	}
+}
@@ -0,0 +1,97 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.utils.Array;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskProfilerTest {
+	ModelTree<Dog> model;
+
+	@Before public void setUp () throws Exception {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		model = new ModelTree<>();
+		model.init(tree);
+	}
+
+	@Test public void countsCalls () {
+		TaskProfiler profiler = new TaskProfiler();
+		model.setProfiler(profiler);
+		// walk takes 3 ticks to succeed
+		for (int i = 0; i < 6; i++) {
+			model.step();
+		}
+		assertEquals(6, profiler.getSteps());
+		ModelTask<Dog> root = model.getRootNode();
+		ModelTask<Dog> walk = root.getChild(0);
+		assertEquals(6, profiler.getCalls(walk));
+		assertEquals(2 / 6f, profiler.getRatio(walk, Task.Status.SUCCEEDED), 0.001f);
+		assertEquals(4 / 6f, profiler.getRatio(walk, Task.Status.RUNNING), 0.001f);
+		assertEquals(0, profiler.getRatio(walk, Task.Status.FAILED), 0.001f);
+		assertTrue(profiler.getTotalNanos(root) >= profiler.getNanos(walk));
+
+		Array<ModelTask<Dog>> hottest = profiler.getHottest(model, 1, new Array<ModelTask<Dog>>());
+		assertEquals(1, hottest.size);
+		assertTrue(profiler.report(model, 5).contains("WalkTask"));
+
+		profiler.clear();
+		assertEquals(0, profiler.getCalls(walk));
+	}
+
+	@Test public void listenersNotCounted () {
+		TaskProfiler profiler = new TaskProfiler();
+		model.setProfiler(profiler);
+		final ModelTask<Dog> walk = model.getRootNode().getChild(0);
+		model.addListener(new ModelTree.Listener<Dog>() {
+			@Override public void statusChanged (ModelTask<Dog> task, Task.Status from, Task.Status to) {
+				// slow view, sequence updates right after walk
+				if (task == walk) {
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+
+			@Override public void validityChanged (ModelTask<Dog> task, boolean isValid) {}
+
+			@Override public void nodeAdded (ModelTask<Dog> task) {}
+
+			@Override public void nodeRemoved (ModelTask<Dog> parent, ModelTask<Dog> task) {}
+
+			@Override public void nodeMoved (ModelTask<Dog> from, ModelTask<Dog> task) {}
+
+			@Override public void attributeChanged (ModelTask<Dog> task) {}
+
+			@Override public void nodeMaterialized (ModelTask<Dog> task) {}
+
+			@Override public void rebuild () {}
+		});
+		for (int i = 0; i < 3; i++) {
+			model.step();
+		}
+		assertTrue(profiler.getNanos(walk) < 20000000);
+		assertTrue(profiler.getNanos(model.getRootNode()) < 20000000);
+	}
+
+	@Test public void disabled () {
+		TaskProfiler profiler = new TaskProfiler();
+		model.setProfiler(profiler);
+		model.step();
+		model.setProfiler(null);
+		model.step();
+		assertNull(model.getProfiler());
+		assertEquals(1, profiler.getSteps());
+		assertEquals(1, profiler.getCalls(model.getRootNode()));
+	}
+}
@@ -0,0 +1,74 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import com.badlogic.gdx.utils.Array;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class TreeSimulatorTest {
+	Sequence<Dog> template;
+	Array<Dog> agents;
+
+	@Before public void setUp () throws Exception {
+		// walk takes 3 ticks to succeed
+		template = new Sequence<>();
+		template.addChild(new WalkTask());
+		agents = new Array<>();
+		for (int i = 0; i < 50; i++) {
+			agents.add(new Dog("Dog " + i));
+		}
+	}
+
+	@Test public void countsAllAgents () {
+		TreeSimulator<Dog> simulator = new TreeSimulator<Dog>(template);
+		simulator.setBatchSize(4);
+		TreeSimulator.Result<Dog> result = simulator.run(agents, 9);
+		assertEquals(2, result.getTaskCount());
+		Task<Dog> walk = template.getChild(0);
+		assertEquals(3 * 50, result.getCount(walk, Task.Status.SUCCEEDED));
+		assertEquals(6 * 50, result.getCount(walk, Task.Status.RUNNING));
+		assertEquals(3 * 50, result.getCount(0, Task.Status.SUCCEEDED));
+		assertEquals(0, result.getTotal(Task.Status.FAILED));
+		// template is not touched
+		assertEquals(Task.Status.FRESH, walk.getStatus());
+	}
+
+	@Test public void sameResultOnSharedPool () {
+		TreeSimulator<Dog> simulator = new TreeSimulator<Dog>(template);
+		TreeSimulator.Result<Dog> first = simulator.run(agents, 10);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		simulator.setPool(pool);
+		simulator.setBatchSize(1);
+		TreeSimulator.Result<Dog> second = simulator.run(agents, 10);
+		pool.shutdown();
+		for (int i = 0; i < first.getTaskCount(); i++) {
+			for (Task.Status status : Task.Status.values()) {
+				assertEquals(first.getCount(i, status), second.getCount(i, status));
+			}
+		}
+	}
+
+	@Test public void templateChangedAfterCreate () {
+		TreeSimulator<Dog> simulator = new TreeSimulator<Dog>(template);
+		Task<Dog> walk = template.getChild(0);
+		template.addChild(new WalkTask());
+		TreeSimulator.Result<Dog> result = simulator.run(agents, 6);
+		// simulated tree as it was when the simulator was created
+		assertEquals(2, result.getTaskCount());
+		assertEquals(2 * 50, result.getCount(walk, Task.Status.SUCCEEDED));
+		assertEquals(0, result.getCount(template.getChild(1), Task.Status.RUNNING));
+	}
+
+	@Test public void noAgents () {
+		TreeSimulator<Dog> simulator = new TreeSimulator<Dog>(template);
+		TreeSimulator.Result<Dog> result = simulator.run(new Array<Dog>(), 100);
+		assertEquals(0, result.getTotal(Task.Status.RUNNING));
+	}
+}
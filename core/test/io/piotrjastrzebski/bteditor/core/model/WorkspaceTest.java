@@ -0,0 +1,91 @@
+package io.piotrjastrzebski.bteditor.core.model;
+
+import com.badlogic.gdx.ai.btree.BehaviorTree;
+import com.badlogic.gdx.ai.btree.Task;
+import com.badlogic.gdx.ai.btree.branch.Sequence;
+import io.piotrjastrzebski.bteditor.core.dog.BarkTask;
+import io.piotrjastrzebski.bteditor.core.dog.Dog;
+import io.piotrjastrzebski.bteditor.core.dog.WalkTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WorkspaceTest {
+	Workspace<Dog> workspace;
+
+	@Before public void setUp () throws Exception {
+		workspace = new Workspace<>();
+	}
+
+	private BehaviorTree<Dog> createTree () {
+		Sequence<Dog> sequence = new Sequence<>();
+		sequence.addChild(new BarkTask());
+		sequence.addChild(new WalkTask());
+		BehaviorTree<Dog> tree = new BehaviorTree<>(sequence);
+		tree.setObject(new Dog("Dog"));
+		return tree;
+	}
+
+	@Test public void sharedLibrary () {
+		Workspace.Entry<Dog> a = workspace.add("a", createTree());
+		Workspace.Entry<Dog> b = workspace.add("b", createTree());
+		assertSame(a.getModel().getTaskLibrary(), b.getModel().getTaskLibrary());
+		assertSame(a.getModel().getPathResolver(), b.getModel().getPathResolver());
+		assertTrue(workspace.getTaskLibrary().has(BarkTask.class));
+		// first added is active
+		assertSame(a, workspace.getActive());
+		assertSame(b, workspace.setActive("b"));
+		assertSame(b, workspace.getActive());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateName () {
+		workspace.add("a", createTree());
+		workspace.add("a", createTree());
+	}
+
+	@Test public void steppedAtOwnRates () {
+		Workspace.Entry<Dog> fast = workspace.add("fast", createTree());
+		Workspace.Entry<Dog> slow = workspace.add("slow", createTree());
+		Workspace.Entry<Dog> paused = workspace.add("paused", createTree());
+		fast.setStepDelay(0.1f);
+		slow.setStepDelay(1f);
+		paused.setPaused(true);
+		Task<Dog> fastRoot = fast.getModel().getRootNode().getTask();
+		Task<Dog> slowRoot = slow.getModel().getRootNode().getTask();
+		Task<Dog> pausedRoot = paused.getModel().getRootNode().getTask();
+
+		workspace.update(0.15f);
+		assertNotEquals(Task.Status.FRESH, fastRoot.getStatus());
+		assertEquals(Task.Status.FRESH, slowRoot.getStatus());
+
+		for (int i = 0; i < 10; i++) {
+			workspace.update(0.15f);
+		}
+		assertNotEquals(Task.Status.FRESH, slowRoot.getStatus());
+		assertEquals(Task.Status.FRESH, pausedRoot.getStatus());
+	}
+
+	@Test public void pausedStepsPerSecond () {
+		Workspace.Entry<Dog> a = workspace.add("a", createTree());
+		a.getScheduler().setStepsPerFrame(10);
+		for (int i = 0; i < 20; i++) {
+			workspace.update(0.1f);
+		}
+		assertTrue(a.getScheduler().getStepsPerSecond() > 0);
+		a.setPaused(true);
+		workspace.update(0.1f);
+		assertEquals(0, a.getScheduler().getStepsPerSecond(), 0);
+	}
+
+	@Test public void removeActive () {
+		Workspace.Entry<Dog> a = workspace.add("a", createTree());
+		Workspace.Entry<Dog> b = workspace.add("b", createTree());
+		assertSame(a, workspace.remove("a"));
+		assertNull(a.getModel().getRootNode());
+		assertSame(b, workspace.getActive());
+		assertEquals(1, workspace.size());
+		assertNull(workspace.remove("a"));
+	}
+}